@@ -0,0 +1 @@
+gradle jmh
\ No newline at end of file
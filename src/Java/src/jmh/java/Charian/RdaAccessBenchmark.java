@@ -0,0 +1,185 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Reading, building, comparing and compressing Rda trees via the API.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaAccessBenchmark {
+
+  @Param({ "WIDE", "DEEP" })
+  public RdaCorpus.Shape Shape;
+
+  private Rda _rda, _copy, _hashed, _changed;
+  private int[][] _leafAddresses;
+  private int _nextAddress;
+  private RdaCursor _cursor;
+  private final RdaQuery _column = RdaQuery.Compile("*.1");
+
+  @Setup
+  public void Setup() throws Exception {
+    _rda = RdaCorpus.Build(Shape);
+    _leafAddresses = RdaCorpus.LeafAddresses(_rda, new Random(1));
+    _copy = Rda.Parse(_rda.ToString());
+    _hashed = Rda.Parse(_rda.ToString());
+    _changed = Rda.Parse(_rda.ToString());
+    for (int i = 0; i < 10; i++) {
+      _changed.SetValue(
+        _leafAddresses[i * 997 % _leafAddresses.length],
+        "changed"
+      );
+    }
+    _cursor = new RdaCursor(_rda);
+  }
+
+  //a random leaf per invocation
+  @Benchmark
+  public String GetValue() throws Exception {
+    int[] address = _leafAddresses[_nextAddress++ % _leafAddresses.length];
+    return _rda.GetValue(address);
+  }
+
+  @Benchmark
+  public String PeekValue() {
+    int[] address = _leafAddresses[_nextAddress++ % _leafAddresses.length];
+    return _rda.PeekValue(address);
+  }
+
+  //visiting every leaf, by its address from the root
+  @Benchmark
+  public void WalkAddresses(Blackhole blackhole) throws Exception {
+    for (int[] address : _leafAddresses) {
+      blackhole.consume(_rda.GetValue(address));
+    }
+  }
+
+  //visiting every leaf, depth-first by a cursor
+  @Benchmark
+  public void WalkCursor(Blackhole blackhole) {
+    RdaCursor cursor = _cursor.Reset(_rda);
+    while (true) {
+      if (cursor.Down(0)) {
+        continue;
+      }
+      blackhole.consume(cursor.GetValue());
+      while (!cursor.Next()) {
+        if (!cursor.Up()) {
+          return;
+        }
+      }
+    }
+  }
+
+  //visiting every leaf, by the sequential and the parallel stream of the leaves
+  @Benchmark
+  public long StreamLeaves() {
+    return _rda
+      .Leaves()
+      .map(Rda::GetScalarValue)
+      .mapToInt(String::length)
+      .sum();
+  }
+
+  @Benchmark
+  public long StreamLeavesParallel() {
+    return _rda
+      .Leaves()
+      .parallel()
+      .map(Rda::GetScalarValue)
+      .mapToInt(String::length)
+      .sum();
+  }
+
+  //the column 1 of every row (or the index-1 elements of the top-level branches), by a compiled query
+  @Benchmark
+  public void QueryColumn(Blackhole blackhole) {
+    for (String value : _column.SelectValues(_rda)) {
+      blackhole.consume(value);
+    }
+  }
+
+  @Benchmark
+  public boolean ContentEqual() {
+    return _rda.ContentEqual(_copy);
+  }
+
+  //a few changed leaves in a large RDA, the unchanged branches are skipped by their (cached) hashes
+  @Benchmark
+  public Rda Diff() throws Exception {
+    return Rda.Diff(_rda, _changed);
+  }
+
+  //a random leaf is changed per invocation, so only the leaf's branches are re-hashed
+  @Benchmark
+  public int HashCodeAfterChange() throws Exception {
+    int[] address = _leafAddresses[_nextAddress++ % _leafAddresses.length];
+    _hashed.SetValue(address, Integer.toString(_nextAddress));
+    return _hashed.hashCode();
+  }
+
+  //building a table of WIDE_ROWS x WIDE_COLUMNS values
+  @Benchmark
+  public Rda AddValue() throws Exception {
+    Rda rda = new Rda();
+    for (int r = 0; r < RdaCorpus.WIDE_ROWS; r++) {
+      Rda row = rda.GetRda(r);
+      for (int c = 0; c < RdaCorpus.WIDE_COLUMNS; c++) {
+        row.AddValue("v");
+      }
+    }
+    return rda;
+  }
+
+  @State(Scope.Thread)
+  public static class CompressState {
+
+    private String _rdaString;
+    Rda Tree;
+
+    //a 3-dimension table with a single value per row, which are all compressed to 1-dimension
+    @Setup(Level.Trial)
+    public void Encode() throws Exception {
+      Rda rda = new Rda();
+      for (int r = 0; r < RdaCorpus.WIDE_ROWS; r++) {
+        rda.SetValue(new int[] { r, 0, 0 }, "v" + r);
+      }
+      _rdaString = rda.ToString();
+    }
+
+    //CompressDimension() modifies the tree, so every invocation compresses a freshly parsed copy
+    @Setup(Level.Invocation)
+    public void Parse() {
+      Tree = Rda.Parse(_rdaString);
+    }
+  }
+
+  @Benchmark
+  public Rda CompressDimension(CompressState state) {
+    state.Tree.CompressDimension();
+    return state.Tree;
+  }
+}
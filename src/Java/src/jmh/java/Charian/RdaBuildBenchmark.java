@@ -0,0 +1,42 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Building and encoding a wide RDA of 10 values per row, by the API. The dimension, level and encoding are cached in the
+ * tree, so the time is linear in the number of elements, i.e. 4x the elements takes about 4x the time.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaBuildBenchmark {
+
+  @Param({ "25000", "100000" })
+  public int Elements;
+
+  @Benchmark
+  public String BuildWide() throws Exception {
+    Rda rda = new Rda();
+    for (int i = 0; i < Elements; i++) {
+      rda.GetRda(i / 10).AddValue(String.valueOf(i));
+    }
+    return rda.ToString();
+  }
+}
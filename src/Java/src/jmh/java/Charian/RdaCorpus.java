@@ -0,0 +1,157 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/*
+ * Generated RDA documents for the benchmarks. The corpora are built from a fixed seed, so every run measures the same data.
+ *
+ * WIDE - a 2-dimension table of records, like a batch file of (HL7/CSV-like) rows
+ * DEEP - a narrow tree with many levels, like a nested configuration
+ * ESCAPED - a table whose values are full of delimiters and escape-chars
+ * CODED - a table whose values are mostly from a small set of codes (e.g. status flags and units), repeated in every row
+ */
+public class RdaCorpus {
+
+  public enum Shape {
+    WIDE,
+    DEEP,
+    ESCAPED,
+    CODED,
+  }
+
+  static final int WIDE_ROWS = 10_000;
+  static final int WIDE_COLUMNS = 10;
+  static final int DEEP_LEVELS = 12;
+  static final int DEEP_FAN_OUT = 2;
+  static final int ESCAPED_ROWS = 2_000;
+  static final int CODES = 50;
+
+  public static Rda Build(Shape shape) throws Exception {
+    Random random = new Random(shape.ordinal());
+    switch (shape) {
+      case WIDE:
+        return BuildTable(WIDE_ROWS, WIDE_COLUMNS, random, false);
+      case DEEP:
+        Rda rda = new Rda();
+        BuildBranch(rda, DEEP_LEVELS, random);
+        return rda;
+      case CODED:
+        return BuildCodedTable(WIDE_ROWS, WIDE_COLUMNS, random);
+      default:
+        return BuildTable(ESCAPED_ROWS, WIDE_COLUMNS, random, true);
+    }
+  }
+
+  public static String Encode(Shape shape, Rda.FORMATTING_VERSION formatting)
+    throws Exception {
+    Rda rda = Build(shape);
+    return formatting == Rda.FORMATTING_VERSION.V2
+      ? rda.ToStringFormatted()
+      : rda.ToString();
+  }
+
+  //the index-addresses of all the leaf values, in a random order
+  public static int[][] LeafAddresses(Rda rda, Random random)
+    throws Exception {
+    List<int[]> addresses = new ArrayList<>();
+    CollectLeafAddresses(rda, new int[0], addresses);
+    Collections.shuffle(addresses, random);
+    return addresses.toArray(new int[0][]);
+  }
+
+  private static Rda BuildTable(
+    int rows,
+    int columns,
+    Random random,
+    boolean escaped
+  ) throws Exception {
+    Rda rda = new Rda();
+    for (int r = 0; r < rows; r++) {
+      Rda row = rda.GetRda(r);
+      for (int c = 0; c < columns; c++) {
+        row.AddValue(escaped ? EscapedValue(random) : Value(random));
+      }
+    }
+    return rda;
+  }
+
+  //the first column is a unique value, the others are codes
+  private static Rda BuildCodedTable(int rows, int columns, Random random)
+    throws Exception {
+    String[] codes = new String[CODES];
+    for (int i = 0; i < codes.length; i++) {
+      codes[i] = Value(random).substring(0, 4);
+    }
+    Rda rda = new Rda();
+    for (int r = 0; r < rows; r++) {
+      Rda row = rda.GetRda(r);
+      row.AddValue(Value(random));
+      for (int c = 1; c < columns; c++) {
+        row.AddValue(codes[random.nextInt(codes.length)]);
+      }
+    }
+    return rda;
+  }
+
+  private static void BuildBranch(Rda rda, int levels, Random random)
+    throws Exception {
+    for (int i = 0; i < DEEP_FAN_OUT; i++) {
+      if (levels == 1) {
+        rda.AddValue(Value(random));
+      } else {
+        Rda child = new Rda();
+        BuildBranch(child, levels - 1, random);
+        rda.AddRda(child);
+      }
+    }
+  }
+
+  private static void CollectLeafAddresses(
+    Rda rda,
+    int[] address,
+    List<int[]> addresses
+  ) throws Exception {
+    if (rda.Dimension() == 0) {
+      addresses.add(address);
+      return;
+    }
+    for (int i = 0; i < rda.Length(); i++) {
+      int[] childAddress = Arrays.copyOf(address, address.length + 1);
+      childAddress[address.length] = i;
+      CollectLeafAddresses(rda.GetRda(i), childAddress, addresses);
+    }
+  }
+
+  private static final String VALUE_CHARS =
+    "abcdefghijklmnopqrstuvwxyzABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789 ";
+  //the default delimiters of the first levels and the default escape-char
+  private static final String SPECIAL_CHARS = "|;,^:~\\";
+
+  private static String Value(Random random) {
+    char[] chars = new char[4 + random.nextInt(12)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] = VALUE_CHARS.charAt(random.nextInt(VALUE_CHARS.length()));
+    }
+    return new String(chars);
+  }
+
+  //about a third of the chars need escaping
+  private static String EscapedValue(Random random) {
+    char[] chars = new char[4 + random.nextInt(12)];
+    for (int i = 0; i < chars.length; i++) {
+      chars[i] =
+        random.nextInt(3) == 0
+          ? SPECIAL_CHARS.charAt(random.nextInt(SPECIAL_CHARS.length()))
+          : VALUE_CHARS.charAt(random.nextInt(VALUE_CHARS.length()));
+    }
+    return new String(chars);
+  }
+}
@@ -0,0 +1,82 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Escaping and un-escaping a single value, with the delimiters of a shallow (3-level) and a deep (40-level) encoding.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaEscapeBenchmark {
+
+  @Param({ "3", "40" })
+  public int Levels;
+
+  @Param({ "plain", "escaped" })
+  public String Value;
+
+  private Rda _rda;
+  private String _escapedValue;
+  private Rda.RdaEncoding.DelimiterTable _delimiters;
+
+  @Setup
+  public void Setup() throws Exception {
+    char[] delimiters = new char[Levels];
+    System.arraycopy(
+      Rda.RdaEncoding.DEFAULT_DELIMITER_CHARS,
+      0,
+      delimiters,
+      0,
+      Levels
+    );
+    String value = Value.equals("plain")
+      ? "Lorem ipsum dolor sit amet consectetur adipiscing elit"
+      : "Lorem|ipsum;dolor,sit^amet:\\consectetur~adipiscing$elit";
+
+    //a single leaf at the bottom level, so all the delimiters are in use when the root's payload is written
+    _rda = Rda.Parse(new String(delimiters) + "\\" + delimiters[0]);
+    _rda.GetRda(new int[Levels]).SetScalarValue(value);
+    _delimiters = new Rda.RdaEncoding.DelimiterTable(delimiters);
+    _escapedValue = EscapedPayload(delimiters, value);
+  }
+
+  @Benchmark
+  public String Escape() {
+    return _rda.PayLoad();
+  }
+
+  @Benchmark
+  public String UnEscape() {
+    return Rda.UnEscape(_escapedValue, _delimiters, '\\', false);
+  }
+
+  private static String EscapedPayload(char[] delimiters, String value) {
+    StringBuilder escaped = new StringBuilder();
+    for (char c : value.toCharArray()) {
+      if (c == '\\' || new String(delimiters).indexOf(c) >= 0) {
+        escaped.append('\\');
+      }
+      escaped.append(c);
+    }
+    return escaped.toString();
+  }
+}
@@ -0,0 +1,96 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Framed RDA messages over a loopback connection to an RdaFrameServer, which parses each request and replies with its
+ * element count. The messages are the first rows of the WIDE corpus table.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaFrameBenchmark {
+
+  //the number of requests that are written before their replies are read
+  static final int PIPELINED_REQUESTS = 16;
+
+  @Param({ "1", "100" })
+  public int Rows;
+
+  private RdaFrameServer _server;
+  private RdaFrameChannel _client;
+  private Rda _request;
+  private final Rda _reply = new Rda();
+
+  @Setup
+  public void Setup() throws Exception {
+    _server = RdaFrameServer.Start(
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+      request -> {
+        Rda reply = new Rda();
+        reply.AddValue(Integer.toString(request.Length()));
+        return reply;
+      }
+    );
+    SocketChannel channel = SocketChannel.open(_server.LocalAddress());
+    channel.socket().setTcpNoDelay(true);
+    _client = new RdaFrameChannel(channel);
+
+    String[][] table = Rda.ParseTable(
+      RdaCorpus.Build(RdaCorpus.Shape.WIDE).ToString()
+    );
+    _request = Rda.Parse(Rda.EncodeTable(Arrays.copyOf(table, Rows)));
+  }
+
+  @TearDown
+  public void TearDown() throws Exception {
+    _client.close();
+    _server.close();
+  }
+
+  //the latency of a request and its reply
+  @Benchmark
+  @BenchmarkMode(Mode.SampleTime)
+  @OutputTimeUnit(TimeUnit.MICROSECONDS)
+  public Rda RoundTrip() throws Exception {
+    _client.Write(_request);
+    return _client.Read(_reply);
+  }
+
+  //the throughput of the requests, when they're pipelined
+  @Benchmark
+  @OperationsPerInvocation(PIPELINED_REQUESTS)
+  public Rda Pipelined() throws Exception {
+    for (int i = 0; i < PIPELINED_REQUESTS; i++) {
+      _client.Write(_request);
+    }
+    for (int i = 0; i < PIPELINED_REQUESTS - 1; i++) {
+      _client.Read(_reply);
+    }
+    return _client.Read(_reply);
+  }
+}
@@ -0,0 +1,98 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Reading and writing a table of numbers, through the String accessors and the primitive-typed accessors.
+ *
+ * The reads of a lazily parsed value by GetInt() don't create its String. A value is stored as its decimal String, so the
+ * writes by SetInt() still create the String - they only save SetValue()'s new child RDA per value.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaNumericBenchmark {
+
+  private static final int ROWS = 10000, COLUMNS = 10;
+
+  private String _rdaString;
+
+  @Setup
+  public void Setup() throws Exception {
+    Rda table = new Rda();
+    for (int r = 0; r < ROWS; r++) {
+      for (int c = 0; c < COLUMNS; c++) {
+        table.SetInt(new int[] { r, c }, r * COLUMNS + c);
+      }
+    }
+    _rdaString = table.ToString();
+  }
+
+  //each value is parsed lazily, so reading it is part of the cost
+  @Benchmark
+  public long SumGetValue() throws Exception {
+    Rda table = Rda.ParseLazy(_rdaString);
+    long sum = 0;
+    for (int r = 0; r < ROWS; r++) {
+      for (int c = 0; c < COLUMNS; c++) {
+        sum += Integer.parseInt(table.GetValue(new int[] { r, c }));
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public long SumGetInt() throws Exception {
+    Rda table = Rda.ParseLazy(_rdaString);
+    long sum = 0;
+    for (int r = 0; r < ROWS; r++) {
+      for (int c = 0; c < COLUMNS; c++) {
+        sum += table.GetInt(r, c);
+      }
+    }
+    return sum;
+  }
+
+  @Benchmark
+  public Rda FillSetValue() throws Exception {
+    Rda table = new Rda();
+    for (int r = 0; r < ROWS; r++) {
+      Rda row = table.GetRda(r);
+      for (int c = 0; c < COLUMNS; c++) {
+        row.SetValue(c, String.valueOf(r * COLUMNS + c));
+      }
+    }
+    return table;
+  }
+
+  //the same value Strings as FillSetValue(), each set in place on the (dummy) child created at its index, rather than on a
+  //further new child RDA
+  @Benchmark
+  public Rda FillSetInt() throws Exception {
+    Rda table = new Rda();
+    for (int r = 0; r < ROWS; r++) {
+      Rda row = table.GetRda(r);
+      for (int c = 0; c < COLUMNS; c++) {
+        row.SetInt(c, r * COLUMNS + c);
+      }
+    }
+    return table;
+  }
+}
@@ -0,0 +1,141 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Exchanging a small object (a message) by its ToRda()/FromRda() container, and by streaming it through RdaObjectWriter and
+ * RdaObjectReader without the container.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaObjectBenchmark {
+
+  public static class Order implements IRda {
+
+    String Id = "ORD-000123";
+    long Timestamp = 1_700_000_000_000L;
+    int Quantity = 250;
+    double Price = 101.25;
+    String Note = "deliver to: dock 3; gate B";
+    String[] Items = { "AAPL", "MSFT", "GOOG", "AMZN" };
+
+    public Rda ToRda() {
+      try {
+        Rda rda = new Rda();
+        rda.SetValue(0, Id);
+        rda.SetLong(1, Timestamp);
+        rda.SetInt(2, Quantity);
+        rda.SetDouble(3, Price);
+        rda.SetValue(4, Note);
+        Rda items = new Rda();
+        for (int i = 0; i < Items.length; i++) {
+          items.SetValue(i, Items[i]);
+        }
+        rda.SetRda(5, items);
+        return rda;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    public IRda FromRda(Rda rda) {
+      try {
+        Id = rda.GetValue(0);
+        Timestamp = rda.GetLong(1);
+        Quantity = rda.GetInt(2);
+        Price = rda.GetDouble(3);
+        Note = rda.GetValue(4);
+        Rda items = rda.GetRda(5);
+        Items = new String[items.Length()];
+        for (int i = 0; i < Items.length; i++) {
+          Items[i] = items.GetValue(i);
+        }
+        return this;
+      } catch (Exception e) {
+        throw new IllegalStateException(e);
+      }
+    }
+
+    @Override
+    public void WriteTo(RdaObjectWriter writer) {
+      writer.WriteValue(Id).WriteLong(Timestamp).WriteInt(Quantity);
+      writer.WriteDouble(Price).WriteValue(Note).BeginChild();
+      for (String item : Items) {
+        writer.WriteValue(item);
+      }
+      writer.EndChild();
+    }
+
+    @Override
+    public IRda ReadFrom(RdaObjectReader reader) {
+      Id = reader.ReadValue();
+      Timestamp = reader.ReadLong();
+      Quantity = reader.ReadInt();
+      Price = reader.ReadDouble();
+      Note = reader.ReadValue();
+      reader.BeginChild();
+      int count = 0;
+      while (reader.HasNext()) {
+        String item = reader.ReadValue();
+        if (count < Items.length) {
+          Items[count] = item;
+        }
+        count++;
+      }
+      reader.EndChild();
+      return this;
+    }
+  }
+
+  private final Order _order = new Order();
+  private final RdaObjectWriter _writer = new RdaObjectWriter();
+  private String _rdaString;
+
+  @Setup
+  public void Setup() {
+    _rdaString = _order.ToRda().ToString();
+  }
+
+  @Benchmark
+  public String WriteByRda() {
+    return _order.ToRda().ToString();
+  }
+
+  @Benchmark
+  public String WriteByWriter() {
+    _order.WriteTo(_writer.Reset());
+    return _writer.ToString();
+  }
+
+  @Benchmark
+  public Order ReadByRda() {
+    Order order = new Order();
+    order.FromRda(Rda.Parse(_rdaString));
+    return order;
+  }
+
+  @Benchmark
+  public Order ReadByReader() {
+    Order order = new Order();
+    order.ReadFrom(new RdaObjectReader(_rdaString));
+    return order;
+  }
+}
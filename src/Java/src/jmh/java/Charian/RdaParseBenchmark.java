@@ -0,0 +1,99 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/*
+ * Parsing an RDA-string of each corpus shape, in v1 and v2 formatting.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaParseBenchmark {
+
+  @Param({ "WIDE", "DEEP", "ESCAPED", "CODED" })
+  public RdaCorpus.Shape Shape;
+
+  @Param({ "V1", "V2" })
+  public Rda.FORMATTING_VERSION Formatting;
+
+  private String _rdaString;
+  private byte[] _rdaBytes;
+  private final RdaParser _parser = new RdaParser();
+  private final Rda _target = new Rda();
+
+  @Setup
+  public void Setup() throws Exception {
+    _rdaString = RdaCorpus.Encode(Shape, Formatting);
+    _rdaBytes = _rdaString.getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public Rda Parse() {
+    return Rda.Parse(_rdaString);
+  }
+
+  //a cache per parse, so it measures the look-ups (and the fewer Strings) rather than an already warm cache
+  @Benchmark
+  public Rda ParseWithValueCache() {
+    return Rda.Parse(_rdaString, new RdaValueCache());
+  }
+
+  //the parser's buffers are re-used, and the target's Rda objects are re-used for the (same) elements of each parse
+  @Benchmark
+  public Rda ParseWithReusedParser() {
+    return _parser.Parse(_rdaString, _target);
+  }
+
+  @Benchmark
+  public Rda ParseParallel() {
+    return Rda.ParseParallel(_rdaString, ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public CompactRda ParseCompact() {
+    return CompactRda.Parse(_rdaString);
+  }
+
+  //the lazily parsed RDA is fully read, so the cost is comparable with Parse()
+  @Benchmark
+  public void ParseLazyAndRead(Blackhole blackhole) throws Exception {
+    ReadLeaves(Rda.ParseLazy(_rdaString), blackhole);
+  }
+
+  @Benchmark
+  public void ParseBytesAndRead(Blackhole blackhole) throws Exception {
+    ReadLeaves(Rda.Parse(_rdaBytes), blackhole);
+  }
+
+  private static void ReadLeaves(Rda rda, Blackhole blackhole)
+    throws Exception {
+    if (rda.Dimension() == 0) {
+      blackhole.consume(rda.GetScalarValue());
+      return;
+    }
+    for (int i = 0; i < rda.Length(); i++) {
+      ReadLeaves(rda.GetRda(i), blackhole);
+    }
+  }
+}
@@ -0,0 +1,76 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * The table fast path (parsing into, and encoding from, String arrays) compared with the Rda tree, for each table shape.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaTableBenchmark {
+
+  @Param({ "WIDE", "ESCAPED", "CODED" })
+  public RdaCorpus.Shape Shape;
+
+  private Rda _rda;
+  private String _rdaString;
+  private String[][] _rows, _columns;
+
+  @Setup
+  public void Setup() throws Exception {
+    _rda = RdaCorpus.Build(Shape);
+    _rdaString = _rda.ToString();
+    _rows = Rda.ParseTable(_rdaString);
+    _columns = Rda.ParseTableColumns(_rdaString);
+  }
+
+  @Benchmark
+  public Rda ParseTree() {
+    return Rda.Parse(_rdaString);
+  }
+
+  @Benchmark
+  public String[][] ParseTable() {
+    return Rda.ParseTable(_rdaString);
+  }
+
+  @Benchmark
+  public String[][] ParseTableColumns() {
+    return Rda.ParseTableColumns(_rdaString);
+  }
+
+  //the tree is built by the API (not parsed), so every value is encoded
+  @Benchmark
+  public String EncodeTree() {
+    return _rda.ToString();
+  }
+
+  @Benchmark
+  public String EncodeTable() {
+    return Rda.EncodeTable(_rows);
+  }
+
+  @Benchmark
+  public String EncodeTableColumns() {
+    return Rda.EncodeTableColumns(_columns);
+  }
+}
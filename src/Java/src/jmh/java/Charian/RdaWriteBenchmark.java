@@ -0,0 +1,61 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/*
+ * Serialising an Rda tree of each corpus shape. The trees are built by the API (not parsed), so every value is re-encoded.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RdaWriteBenchmark {
+
+  @Param({ "WIDE", "DEEP", "ESCAPED" })
+  public RdaCorpus.Shape Shape;
+
+  private Rda _rda;
+
+  @Setup
+  public void Setup() throws Exception {
+    _rda = RdaCorpus.Build(Shape);
+  }
+
+  @Benchmark
+  public String ToStringV1() {
+    return _rda.ToString();
+  }
+
+  @Benchmark
+  public String ToStringFormatted() {
+    return _rda.ToStringFormatted();
+  }
+
+  @Benchmark
+  public String ToStringParallel() {
+    return _rda.ToString(ForkJoinPool.commonPool());
+  }
+
+  @Benchmark
+  public byte[] ToBytes() {
+    return _rda.ToBytes();
+  }
+}
@@ -0,0 +1,411 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/*
+ * A compact, read-only representation of a parsed RDA-string, for loading large RDAs (e.g. tables of millions of cells) that
+ * would take an Rda object, an element list and a value String per cell.
+ *
+ * The RDA-string's chars are kept as the value arena, and the tree is stored in flat int arrays per level: each section at a
+ * level has the offset of its first child section at the next level (the children of a section are consecutive, as they are
+ * in the RDA-string), and a leaf section has the start and end offsets of its (escaped) value in the arena. That is about
+ * 8 bytes per cell, plus the cell's chars. A value is un-escaped when it's read.
+ *
+ * The read API is the same as Rda's, and ToRda() makes a (mutable) Rda for editing - a copy of the section's content, which is
+ * built from the level arrays (as RdaParser builds a parsed tree), and un-escapes every value.
+ *
+ * NB, a section has no link to its parent: a view of a branch (see GetRda()) can't navigate up, and its ToRda() is a root
+ * Rda of the branch's content.
+ */
+public final class CompactRda {
+
+  //the storage, shared by the views of the branches
+  private static final class Store {
+
+    final char[] Chars;
+    final char[] Delimiters;
+    final Rda.RdaEncoding.DelimiterTable DelimiterTable;
+    final char EscapeChar;
+    final boolean V2Formatted;
+    //ChildStarts[level][i] is the index (at level + 1) of the i-th section's first child, with a trailing entry for the end
+    final int[][] ChildStarts;
+    final int[] ValueStarts, ValueEnds;
+
+    Store(
+      char[] chars,
+      Rda.RdaEncoding encoding,
+      boolean v2Formatted,
+      int[][] childStarts,
+      int[] valueStarts,
+      int[] valueEnds
+    ) {
+      Chars = chars;
+      Delimiters = encoding.Delimiters;
+      DelimiterTable = encoding.GetDelimiterTable();
+      EscapeChar = encoding.EscapeChar;
+      V2Formatted = v2Formatted;
+      ChildStarts = childStarts;
+      ValueStarts = valueStarts;
+      ValueEnds = valueEnds;
+    }
+  }
+
+  private final Store _store;
+  private final int _level, _index; //this section's level, and its index in the level's arrays
+  private final String _scalarValue; //the whole RDA-string, if it has no header section
+
+  private CompactRda(Store store, int level, int index) {
+    _store = store;
+    _level = level;
+    _index = index;
+    _scalarValue = null;
+  }
+
+  private CompactRda(String scalarValue) {
+    _store = null;
+    _level = 0;
+    _index = 0;
+    _scalarValue = scalarValue;
+  }
+
+  //parses the RDA-string in a single pass, as Rda.Parse()
+  public static CompactRda Parse(String rdaString) {
+    char[] chars = rdaString == null ? new char[0] : rdaString.toCharArray();
+    Rda.RdaEncoding encoding = Rda.GetHeaderSectionEncoder(chars);
+    int depth = encoding.Delimiters.length;
+    if (depth == 0) {
+      return new CompactRda(rdaString);
+    }
+    int payloadStart = depth + 2;
+    boolean v2Formatted =
+      Rda.DetermineParsingFormatVersion(chars, payloadStart, chars.length) ==
+      Rda.FORMATTING_VERSION.V2;
+    return new Parser(chars, encoding, v2Formatted)
+      .Parse(payloadStart, chars.length);
+  }
+
+  /**
+   * Read API - same as Rda's
+   */
+
+  public int Dimension() {
+    return _store == null ? 0 : _store.Delimiters.length - _level;
+  }
+
+  public int Length() {
+    return Dimension() == 0 ? 0 : ChildCount(_level, _index);
+  }
+
+  //the left-most leaf value
+  public String GetScalarValue() {
+    if (_store == null) {
+      return _scalarValue == null ? "" : _scalarValue;
+    }
+    return ScalarValue(_level, _index);
+  }
+
+  public String GetValue(int index) {
+    return GetValue(new int[] { index });
+  }
+
+  //the addressed section's (left-most leaf) value, "" if the address is out of range
+  public String GetValue(int[] addressIndexArray) {
+    if (_store == null) {
+      return Leads(addressIndexArray) ? GetScalarValue() : "";
+    }
+
+    int level = _level, index = _index;
+    for (int i = 0; i < addressIndexArray.length; i++) {
+      int childIndex = addressIndexArray[i];
+      if (level == _store.Delimiters.length) {
+        //index-0 of a leaf is the leaf itself
+        return Leads(addressIndexArray, i) ? ScalarValue(level, index) : "";
+      } else if (childIndex < 0 || childIndex >= ChildCount(level, index)) {
+        return "";
+      }
+      index = _store.ChildStarts[level][index] + childIndex;
+      level++;
+    }
+    return ScalarValue(level, index);
+  }
+
+  //the view of a child section, or null if the index is out of range
+  public CompactRda GetRda(int index) {
+    return GetRda(new int[] { index });
+  }
+
+  public CompactRda GetRda(int[] addressIndexArray) {
+    if (_store == null) {
+      return Leads(addressIndexArray) ? this : null;
+    }
+
+    int level = _level, index = _index;
+    for (int i = 0; i < addressIndexArray.length; i++) {
+      int childIndex = addressIndexArray[i];
+      if (level == _store.Delimiters.length) {
+        return Leads(addressIndexArray, i)
+          ? new CompactRda(_store, level, index)
+          : null;
+      } else if (childIndex < 0 || childIndex >= ChildCount(level, index)) {
+        return null;
+      }
+      index = _store.ChildStarts[level][index] + childIndex;
+      level++;
+    }
+    return new CompactRda(_store, level, index);
+  }
+
+  public String ToString() {
+    StringBuilder result = new StringBuilder();
+    try {
+      WriteTo(result);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by StringBuilder
+    }
+    return result.toString();
+  }
+
+  public String toString() {
+    return ToString();
+  }
+
+  //writes the (v1) RDA-string, as Rda.WriteTo()
+  public void WriteTo(Appendable output) throws IOException {
+    if (Dimension() == 0) {
+      output.append(GetScalarValue());
+      return;
+    }
+
+    char[] delimiterChars = Arrays.copyOfRange(
+      _store.Delimiters,
+      _level,
+      _store.Delimiters.length
+    );
+    for (char delimiter : delimiterChars) {
+      output.append(delimiter);
+    }
+    output.append(_store.EscapeChar).append(delimiterChars[0]);
+    WritePayload(
+      output,
+      new Rda.RdaEncoding.DelimiterTable(delimiterChars),
+      _level,
+      _index
+    );
+  }
+
+  //a (mutable) Rda with this section's content
+  public Rda ToRda() {
+    if (Dimension() == 0) {
+      Rda rda = new Rda();
+      rda.SetScalarValue(GetScalarValue());
+      return rda;
+    }
+
+    char[] delimiterChars = Arrays.copyOfRange(
+      _store.Delimiters,
+      _level,
+      _store.Delimiters.length
+    );
+    Rda rda = new Rda(new Rda.RdaEncoding(delimiterChars, _store.EscapeChar));
+    rda.ResetParsed(Dimension());
+    CopyTo(rda, _level, _index);
+    return rda;
+  }
+
+  /* helpers */
+
+  private int ChildCount(int level, int index) {
+    int[] childStarts = _store.ChildStarts[level];
+    return childStarts[index + 1] - childStarts[index];
+  }
+
+  private String ScalarValue(int level, int index) {
+    for (; level < _store.Delimiters.length; level++) {
+      index = _store.ChildStarts[level][index];
+    }
+    return Rda.UnEscape(
+      _store.Chars,
+      _store.ValueStarts[index],
+      _store.ValueEnds[index],
+      _store.DelimiterTable,
+      _store.EscapeChar,
+      _store.V2Formatted
+    );
+  }
+
+  //copies the section's content to the (new) Rda, each child section is a child Rda of the section's dimension
+  private void CopyTo(Rda rda, int level, int index) {
+    int depth = _store.Delimiters.length;
+    if (level == depth) {
+      rda.SetParsedValue(ScalarValue(level, index));
+      return;
+    }
+    int childStart = _store.ChildStarts[level][index];
+    int childEnd = _store.ChildStarts[level][index + 1];
+    for (int child = childStart; child < childEnd; child++) {
+      CopyTo(
+        rda.ParsedChild(child - childStart, depth - level - 1),
+        level + 1,
+        child
+      );
+    }
+  }
+
+  //if the address (from 'from') only has index-0s, which address a leaf itself
+  private static boolean Leads(int[] addressIndexArray, int from) {
+    for (int i = from; i < addressIndexArray.length; i++) {
+      if (addressIndexArray[i] != 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private static boolean Leads(int[] addressIndexArray) {
+    return Leads(addressIndexArray, 0);
+  }
+
+  private void WritePayload(
+    Appendable output,
+    Rda.RdaEncoding.DelimiterTable delimitersInUse,
+    int level,
+    int index
+  ) throws IOException {
+    if (level == _store.Delimiters.length) {
+      Rda.WriteEscaped(
+        output,
+        ScalarValue(level, index),
+        delimitersInUse,
+        _store.EscapeChar,
+        false
+      );
+      return;
+    }
+
+    int childStart = _store.ChildStarts[level][index];
+    int childEnd = _store.ChildStarts[level][index + 1];
+    for (int child = childStart; child < childEnd; child++) {
+      if (child > childStart) {
+        output.append(_store.Delimiters[level]);
+      }
+      WritePayload(output, delimitersInUse, level + 1, child);
+    }
+  }
+
+  //single-pass parsing into the per-level arrays, as Rda.ParsePayload() builds the Rda tree (and drops the trailing empty sections)
+  private static final class Parser {
+
+    final char[] Chars;
+    final Rda.RdaEncoding Encoding;
+    final boolean V2Formatted;
+    final int Depth;
+    final int[][] ChildStarts;
+    final int[] Counts; //the number of sections at each level
+    int[] ValueStarts = new int[16], ValueEnds = new int[16];
+    final int[] SectionStarts; //the start offset of the open section at each level
+
+    Parser(char[] chars, Rda.RdaEncoding encoding, boolean v2Formatted) {
+      Chars = chars;
+      Encoding = encoding;
+      V2Formatted = v2Formatted;
+      Depth = encoding.Delimiters.length;
+      ChildStarts = new int[Depth][];
+      for (int level = 0; level < Depth; level++) {
+        ChildStarts[level] = new int[level == 0 ? 2 : 16];
+      }
+      Counts = new int[Depth + 1];
+      SectionStarts = new int[Depth + 1];
+    }
+
+    CompactRda Parse(int payloadStart, int payloadEnd) {
+      Rda.RdaEncoding.DelimiterTable delimiters = Encoding.GetDelimiterTable();
+      char escapeChar = Encoding.EscapeChar;
+      Counts[0] = 1; //the root
+      SectionStarts[0] = payloadStart;
+      OpenSections(1, payloadStart);
+
+      boolean escaping = false;
+      for (int i = payloadStart; i < payloadEnd; i++) {
+        char currChar = Chars[i];
+        if (currChar == escapeChar) {
+          escaping = !escaping; //note it flips when escape-char is hit again
+          continue;
+        } else if (!escaping) {
+          int sectionDepth = delimiters.Level(currChar);
+          if (sectionDepth > 0) {
+            CloseSections(sectionDepth + 1, i);
+            CloseSection(sectionDepth, i);
+            OpenSections(sectionDepth, i + 1);
+          }
+        }
+        escaping = false;
+      }
+      CloseSections(1, payloadEnd);
+
+      //the trailing entries, so the children of a section end where the next section's children start
+      int[][] childStarts = new int[Depth][];
+      for (int level = 0; level < Depth; level++) {
+        childStarts[level] = Arrays.copyOf(ChildStarts[level], Counts[level] + 1);
+        childStarts[level][Counts[level]] = Counts[level + 1];
+      }
+      Store store = new Store(
+        Chars,
+        Encoding,
+        V2Formatted,
+        childStarts,
+        Arrays.copyOf(ValueStarts, Counts[Depth]),
+        Arrays.copyOf(ValueEnds, Counts[Depth])
+      );
+      return new CompactRda(store, 0, 0);
+    }
+
+    //appends a new section at each level from 'fromLevel' down to the bottom level
+    private void OpenSections(int fromLevel, int sectionStart) {
+      for (int level = fromLevel; level <= Depth; level++) {
+        int index = Counts[level]++;
+        if (level < Depth) {
+          if (index + 1 == ChildStarts[level].length) {
+            ChildStarts[level] = Arrays.copyOf(ChildStarts[level], index * 2 + 2);
+          }
+          ChildStarts[level][index] = Counts[level + 1];
+        } else if (index == ValueStarts.length) {
+          ValueStarts = Arrays.copyOf(ValueStarts, index * 2);
+          ValueEnds = Arrays.copyOf(ValueEnds, index * 2);
+        }
+        SectionStarts[level] = sectionStart;
+      }
+    }
+
+    //closes the open sections from the bottom level up to 'toLevel'. An empty last-section in a non-empty parent section is discarded.
+    private void CloseSections(int toLevel, int sectionEnd) {
+      for (int level = Depth; level >= toLevel; level--) {
+        if (
+          SectionStarts[level] == sectionEnd &&
+          SectionStarts[level - 1] < sectionEnd
+        ) {
+          //drop the section, and its child sections
+          Counts[level]--;
+          for (int l = level; l < Depth; l++) {
+            Counts[l + 1] = ChildStarts[l][Counts[l]];
+          }
+        } else {
+          CloseSection(level, sectionEnd);
+        }
+      }
+    }
+
+    private void CloseSection(int level, int sectionEnd) {
+      if (level == Depth) {
+        int index = Counts[Depth] - 1;
+        ValueStarts[index] = SectionStarts[Depth];
+        ValueEnds[index] = sectionEnd;
+      }
+    }
+  }
+}
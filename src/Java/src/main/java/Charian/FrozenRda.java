@@ -0,0 +1,229 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.Arrays;
+
+/*
+ * An immutable snapshot of an Rda (see Rda.Freeze()), for sharing a parsed RDA (e.g. a configuration or a reference table)
+ * across threads without copying or locking.
+ *
+ * The snapshot's nodes are stored in arrays, numbered in breadth-first order so the children of a node are consecutive,
+ * rather than as an object per node. The arrays are only written when the snapshot is created, so any number of threads can
+ * read it concurrently. Reading a value (GetValue(), GetScalarValue(), Length() and Dimension()) never allocates, and unlike
+ * Rda.GetRda(), never creates elements - an address that's out of range reads an empty value.
+ *
+ * The exception is GetRda(), which returns a view of a branch - a (small) new object on the same storage. The reads by an
+ * address (GetValue(int[]), Length(int[]) and Dimension(int[])) cover a branch's content without a view, so a view is only
+ * needed to pass a branch on.
+ */
+public final class FrozenRda {
+
+  //the snapshot's storage, shared by the views of its branches
+  private static final class Nodes {
+
+    final int[] FirstChild; //the node-number of the first child
+    final int[] ChildCount;
+    final int[] Dimension;
+    final String[] Value; //a leaf's scalar value, null for a composite node or a dummy leaf
+    final char[] Delimiters;
+    final char EscapeChar;
+
+    Nodes(int nodeCount, char[] delimiters, char escapeChar) {
+      FirstChild = new int[nodeCount];
+      ChildCount = new int[nodeCount];
+      Dimension = new int[nodeCount];
+      Value = new String[nodeCount];
+      Delimiters = delimiters;
+      EscapeChar = escapeChar;
+    }
+  }
+
+  private final Nodes _nodes;
+  private final int _node, _level;
+
+  private FrozenRda(Nodes nodes, int node, int level) {
+    _nodes = nodes;
+    _node = node;
+    _level = level;
+  }
+
+  //the snapshot of the RDA's current content, the RDA isn't changed afterwards by the snapshot (or vice versa)
+  FrozenRda(Rda rda) {
+    //count the nodes, then number them breadth-first
+    int nodeCount = 0;
+    Rda[] queue = new Rda[16];
+    queue[nodeCount++] = rda;
+    for (int n = 0; n < nodeCount; n++) {
+      Rda node = queue[n];
+      int length = node.Dimension() == 0 ? 0 : node.Length();
+      if (nodeCount + length > queue.length) {
+        queue =
+          Arrays.copyOf(
+            queue,
+            Math.max(queue.length * 2, nodeCount + length)
+          );
+      }
+      for (int i = 0; i < length; i++) {
+        queue[nodeCount++] = node.Elements.get(i);
+      }
+    }
+
+    Nodes nodes = new Nodes(
+      nodeCount,
+      rda.DelimitersInUse(),
+      rda.EscapeChar()
+    );
+    int nextChild = 1;
+    for (int n = 0; n < nodeCount; n++) {
+      Rda node = queue[n];
+      int length = node.Dimension() == 0 ? 0 : node.Elements.size();
+      nodes.FirstChild[n] = nextChild;
+      nodes.ChildCount[n] = length;
+      nodes.Dimension[n] = node.Dimension();
+      if (length == 0 && !node.IsDummy()) {
+        nodes.Value[n] = node.GetScalarValue();
+      }
+      nextChild += length;
+      queue[n] = null;
+    }
+
+    _nodes = nodes;
+    _node = 0;
+    _level = 0;
+  }
+
+  /**
+   * Read API - same as Rda's, except nothing is ever created
+   */
+
+  public int Dimension() {
+    return _nodes.Dimension[_node];
+  }
+
+  public int Length() {
+    return _nodes.ChildCount[_node];
+  }
+
+  //the dimension of the addressed branch, 0 if the address is out of range
+  public int Dimension(int[] addressIndexArray) {
+    int node = Node(addressIndexArray);
+    return node < 0 ? 0 : _nodes.Dimension[node];
+  }
+
+  //the number of the addressed branch's elements, 0 if the address is out of range
+  public int Length(int[] addressIndexArray) {
+    int node = Node(addressIndexArray);
+    return node < 0 ? 0 : _nodes.ChildCount[node];
+  }
+
+  //the left-most leaf value, "" for a dummy
+  public String GetScalarValue() {
+    return ScalarValue(_node);
+  }
+
+  public String GetValue(int index) {
+    return ScalarValue(Child(_node, index));
+  }
+
+  public String GetValue(int[] addressIndexArray) {
+    return ScalarValue(Node(addressIndexArray));
+  }
+
+  //the view of a child branch, or null if the index is out of range. NB, a view is a (small) new object.
+  public FrozenRda GetRda(int index) {
+    int child = Child(_node, index);
+    return child < 0
+      ? null
+      : child == _node ? this : new FrozenRda(_nodes, child, _level + 1);
+  }
+
+  //the level is only raised by the steps that descend into a child node, the index-0 step of a leaf stays at the leaf
+  public FrozenRda GetRda(int[] addressIndexArray) {
+    int node = _node, level = _level;
+    for (int i = 0; node >= 0 && i < addressIndexArray.length; i++) {
+      int child = Child(node, addressIndexArray[i]);
+      if (child != node) {
+        level++;
+      }
+      node = child;
+    }
+    return node < 0
+      ? null
+      : node == _node ? this : new FrozenRda(_nodes, node, level);
+  }
+
+  //a new (mutable) Rda with the snapshot's content, built into the Elements as RdaParser builds a parsed tree, with the
+  //snapshot's dimensions (so nothing is updated up the tree for each node)
+  public Rda ToRda() {
+    char[] delimiters = new char[Dimension()];
+    System.arraycopy(
+      _nodes.Delimiters,
+      _level,
+      delimiters,
+      0,
+      delimiters.length
+    );
+    Rda rda = new Rda(new Rda.RdaEncoding(delimiters, _nodes.EscapeChar));
+    rda.ResetParsed(Dimension());
+    CopyTo(rda, _node);
+    return rda;
+  }
+
+  public String ToString() {
+    return ToRda().ToString();
+  }
+
+  public String toString() {
+    return ToString();
+  }
+
+  /* helpers */
+
+  //the node-number of the indexed child, -1 if it's out of range. As in Rda, the index-0 child of a leaf is the leaf itself.
+  private int Child(int node, int index) {
+    if (node < 0 || index < 0) {
+      return -1;
+    } else if (_nodes.ChildCount[node] == 0) {
+      return index == 0 ? node : -1;
+    } else {
+      return index < _nodes.ChildCount[node]
+        ? _nodes.FirstChild[node] + index
+        : -1;
+    }
+  }
+
+  //the node-number of the address, -1 if it's out of range
+  private int Node(int[] addressIndexArray) {
+    int node = _node;
+    for (int i = 0; node >= 0 && i < addressIndexArray.length; i++) {
+      node = Child(node, addressIndexArray[i]);
+    }
+    return node;
+  }
+
+  private String ScalarValue(int node) {
+    if (node < 0) {
+      return "";
+    }
+    while (_nodes.ChildCount[node] > 0) {
+      node = _nodes.FirstChild[node];
+    }
+    String value = _nodes.Value[node];
+    return value == null ? "" : value;
+  }
+
+  //copies the node's content to the (new) Rda, a leaf's value is null for a dummy
+  private void CopyTo(Rda rda, int node) {
+    int length = _nodes.ChildCount[node];
+    if (length == 0) {
+      rda.SetParsedValue(_nodes.Value[node]);
+    }
+    for (int i = 0; i < length; i++) {
+      int child = _nodes.FirstChild[node] + i;
+      CopyTo(rda.ParsedChild(i, _nodes.Dimension[child]), child);
+    }
+  }
+}
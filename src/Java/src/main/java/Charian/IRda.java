@@ -23,4 +23,20 @@ public interface IRda {
   /// </summary>
   /// <param name="rda">An Rda instance that carries the properties of an object to be restored.</param>
   IRda FromRda(Rda rda);
+
+  /// <summary>
+  /// Streams properties into the writer, as the elements of the current container (see RdaObjectWriter).
+  /// The default writes the elements of ToRda(), an object can override it to skip building the Rda.
+  /// </summary>
+  default void WriteTo(RdaObjectWriter writer) {
+    writer.WriteElements(ToRda());
+  }
+
+  /// <summary>
+  /// Restores properties from the elements of the reader's current container (see RdaObjectReader).
+  /// The default passes the container to FromRda(), an object can override it to read the values directly.
+  /// </summary>
+  default IRda ReadFrom(RdaObjectReader reader) {
+    return FromRda(reader.ReadRemaining());
+  }
 }
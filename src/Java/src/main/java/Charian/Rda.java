@@ -4,8 +4,28 @@
 
 package Charian;
 
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /*
  * UniversalDataTransport name-space is for unified data storage and transportation using the RDA data storage structure.
@@ -40,8 +60,14 @@ public class Rda implements IRda {
     if (rda.Dimension() == 0) {
       SetScalarValue(rda.GetScalarValue());
     } else {
+      rda.IndexElements();
+      DetachSource();
+      int oldDimension = _dimension;
       Elements.clear();
       Elements.addAll(rda.Elements);
+      _dimension = rda.Dimension();
+      DimensionChanged(oldDimension);
+      ContentChanged();
     }
 
     return this;
@@ -52,6 +78,7 @@ public class Rda implements IRda {
    */
 
   //These are the RDA's data storage. Elements are for storing the "composite" content, when RDA's Dimension > 0
+  //NB, Elements should be modified via the API methods (e.g. SetRda()), which maintain the cached dimensions in the RDA tree
   public List<Rda> Elements = new ArrayList<Rda>();
   //"scalar" content is used when RDA's Dimension = 0
   private String _scalarValue = null;
@@ -60,9 +87,24 @@ public class Rda implements IRda {
   public Rda Parent; // the upper-level RDA of which this RDA is a child
   private RdaEncoding _encoding;
 
+  //lazy parsing: the (unmodified) section of the parsed RDA-string that this RDA's content is sourced from.
+  //Elements are indexed from the source section on the first access, and a leaf's scalar value is un-escaped on the first read.
+  //NB, the Elements of a lazily parsed RDA must be accessed via the API methods (e.g. GetRda() and Length()) so they can get indexed.
+  private LazySource _source;
+  private long _sourceStart, _sourceEnd;
+  private int _sourceLevel;
+
+  //cached tree properties - the root's encoding and the level are set when the RDA is attached to a parent,
+  //the dimension is updated (or reset to -1, to be re-calculated on the next use) when the Elements are changed
+  private RdaEncoding _globalEncoding;
+  private int _level;
+  private int _dimension;
+  //the content hash (see hashCode()), 0 if it's not calculated - it's reset up the tree when the content is changed
+  private int _contentHash;
+
   // public RdaEncoding GlobalEncoding = Parent == null ? _encoding : Parent.GlobalEncoding;
   public RdaEncoding GlobalEncoding() {
-    return Parent == null ? _encoding : Parent.GlobalEncoding();
+    return Parent == null ? _encoding : _globalEncoding;
   }
 
   /**
@@ -78,53 +120,395 @@ public class Rda implements IRda {
     _encoding = new RdaEncoding();
   }
 
-  private Rda(Rda parent) {
+  Rda(Rda parent) {
     Parent = parent; //inherites parent's encoding
+    _globalEncoding = parent.GlobalEncoding();
+    _level = parent.Level() + 1;
+  }
+
+  private Rda(
+    Rda parent,
+    LazySource source,
+    long sourceStart,
+    long sourceEnd,
+    int sourceLevel
+  ) {
+    this(parent);
+    _source = source;
+    _sourceStart = sourceStart;
+    _sourceEnd = sourceEnd;
+    _sourceLevel = sourceLevel;
+    _dimension = source.Delimiters.length - sourceLevel;
   }
 
   public static Rda Parse(String rdaString) {
-    RdaEncoding encoding = GetHeaderSectionEncoder(rdaString);
+    return Parse(rdaString, null);
+  }
+
+  //same as Parse(), except the (short) leaf values are shared via the value-cache, so the repeated values share a String
+  public static Rda Parse(String rdaString, RdaValueCache valueCache) {
+    return new RdaParser(valueCache).Parse(rdaString);
+  }
+
+  //the rows of a table (i.e. a 2-level RDA-string), each row's fields are the values of Parse(rdaString).GetRda(row)'s elements.
+  //The table is parsed directly into the arrays, without the Rda tree, see RdaTable
+  public static String[][] ParseTable(String rdaString) {
+    return RdaTable.ParseRows(rdaString);
+  }
+
+  //same as ParseTable(), except the fields are column-major, i.e. [column][row], and a row's missing fields are null
+  public static String[][] ParseTableColumns(String rdaString) {
+    return RdaTable.ParseColumns(rdaString);
+  }
+
+  //the RDA-string of a table, which is the same as ToString() of the Rda that has each field's value set at [row, column]
+  //(so a null field is a dummy), encoded directly from the arrays
+  public static String EncodeTable(String[][] rows) {
+    return RdaTable.EncodeRows(rows);
+  }
+
+  //same as EncodeTable(), except the fields are column-major, i.e. [column][row]
+  public static String EncodeTableColumns(String[][] columns) {
+    return RdaTable.EncodeColumns(columns);
+  }
+
+  //same as Parse(), except the payload is parsed on the fork-join pool, which is for a large RDA-string that has many top-level
+  //sections (e.g. a batch of records). The top-level delimiters are located in chunks of the payload concurrently, then the
+  //top-level sections are parsed concurrently. A small RDA-string is parsed by Parse().
+  public static Rda ParseParallel(String rdaString, ForkJoinPool pool) {
+    return ParseParallel(rdaString, pool, PARALLEL_CHUNK_LENGTH);
+  }
+
+  //the minimum number of chars in a chunk of the payload that is parsed by a task
+  static final int PARALLEL_CHUNK_LENGTH = 1 << 16;
+
+  static Rda ParseParallel(
+    String rdaString,
+    ForkJoinPool pool,
+    int minChunkLength
+  ) {
+    char[] rdaChars = rdaString == null ? new char[0] : rdaString.toCharArray();
+    RdaEncoding encoding = GetHeaderSectionEncoder(rdaChars);
+    int payloadStart = encoding.Delimiters.length + 2;
+    if (
+      encoding.Delimiters.length == 0 ||
+      rdaChars.length - payloadStart < 2 * minChunkLength
+    ) {
+      return Parse(rdaString);
+    }
+
+    Rda rda = new Rda(encoding);
+    boolean v2Formatted =
+      DetermineParsingFormatVersion(
+        rdaChars,
+        payloadStart,
+        rdaChars.length
+      ) ==
+      FORMATTING_VERSION.V2;
+    char escapeChar = encoding.EscapeChar;
+    char delimiter = encoding.Delimiters[0];
+    encoding.GetDelimiterTable(); //built before it's shared by the tasks
+
+    //1. the (un-escaped) top-level delimiters in each chunk of the payload
+    int payloadLength = rdaChars.length - payloadStart;
+    int chunkCount = Math.min(
+      payloadLength / minChunkLength,
+      pool.getParallelism() * 4
+    );
+    int[][] chunkDelimiters = new int[chunkCount][];
+    int[] chunkDelimiterCounts = new int[chunkCount];
+    ForEachParallel(
+      pool,
+      chunkCount,
+      chunk -> {
+        int chunkStart = payloadStart + Split(payloadLength, chunk, chunkCount);
+        int chunkEnd = payloadStart + Split(payloadLength, chunk + 1, chunkCount);
+        //a char is escaped if it follows an odd number of escape-chars, which may be before the chunk
+        boolean escaping = false;
+        for (
+          int i = chunkStart - 1;
+          i >= payloadStart && rdaChars[i] == escapeChar;
+          i--
+        ) {
+          escaping = !escaping;
+        }
+        int[] delimiters = new int[16];
+        int count = 0;
+        for (int i = chunkStart; i < chunkEnd; i++) {
+          char currChar = rdaChars[i];
+          if (currChar == escapeChar) {
+            escaping = !escaping;
+            continue;
+          } else if (!escaping && currChar == delimiter) {
+            if (count == delimiters.length) {
+              delimiters = Arrays.copyOf(delimiters, count * 2);
+            }
+            delimiters[count++] = i;
+          }
+          escaping = false;
+        }
+        chunkDelimiters[chunk] = delimiters;
+        chunkDelimiterCounts[chunk] = count;
+      }
+    );
+
+    //the top-level sections between the delimiters, the last section is dropped if it's empty (i.e. after a trailing delimiter)
+    int sectionCount = 1;
+    for (int count : chunkDelimiterCounts) {
+      sectionCount += count;
+    }
+    int[] sectionStarts = new int[sectionCount + 1];
+    sectionStarts[0] = payloadStart;
+    int section = 1;
+    for (int chunk = 0; chunk < chunkCount; chunk++) {
+      for (int i = 0; i < chunkDelimiterCounts[chunk]; i++) {
+        sectionStarts[section++] = chunkDelimiters[chunk][i] + 1;
+      }
+    }
+    sectionStarts[sectionCount] = rdaChars.length + 1; //so the last section ends at the end of the payload
+    if (sectionStarts[sectionCount - 1] == rdaChars.length) {
+      sectionCount--;
+    }
+
+    //2. the top-level sections are parsed in groups of sections
+    Rda[] sections = new Rda[sectionCount];
+    for (int i = 0; i < sectionCount; i++) {
+      sections[i] = new Rda(rda);
+      rda.Elements.add(sections[i]);
+    }
+    rda._dimension = encoding.Delimiters.length;
+    int groupCount = Math.min(sectionCount, pool.getParallelism() * 4);
+    ForEachParallel(
+      pool,
+      groupCount,
+      group -> {
+        RdaParser parser = new RdaParser();
+        int groupEnd = Split(sections.length, group + 1, groupCount);
+        for (
+          int i = Split(sections.length, group, groupCount);
+          i < groupEnd;
+          i++
+        ) {
+          int sectionEnd = sectionStarts[i + 1] - 1;
+          if (encoding.Delimiters.length == 1) {
+            sections[i]._scalarValue =
+              UnEscape(
+                rdaChars,
+                sectionStarts[i],
+                sectionEnd,
+                encoding.GetDelimiterTable(),
+                escapeChar,
+                v2Formatted
+              );
+          } else {
+            parser.ParsePayload(
+              sections[i],
+              rdaChars,
+              sectionStarts[i],
+              sectionEnd,
+              v2Formatted
+            );
+          }
+        }
+      }
+    );
+
+    return rda;
+  }
+
+  //the start of the part-th of the equal parts of the length
+  private static int Split(int length, int part, int partCount) {
+    return (int) ((long) length * part / partCount);
+  }
+
+  //runs the action for each index in [0, count) on the fork-join pool, and waits for them to complete
+  private static void ForEachParallel(
+    ForkJoinPool pool,
+    int count,
+    IntConsumer action
+  ) {
+    pool.invoke(new ParallelRange(0, count, action));
+  }
+
+  private static class ParallelRange extends RecursiveAction {
+
+    private static final long serialVersionUID = 1L;
+
+    private final int _start, _end;
+    private final IntConsumer _action;
+
+    ParallelRange(int start, int end, IntConsumer action) {
+      _start = start;
+      _end = end;
+      _action = action;
+    }
+
+    @Override
+    protected void compute() {
+      if (_end - _start == 1) {
+        _action.accept(_start);
+      } else if (_end > _start) {
+        int middle = (_start + _end) >>> 1;
+        invokeAll(
+          new ParallelRange(_start, middle, _action),
+          new ParallelRange(middle, _end, _action)
+        );
+      }
+    }
+  }
+
+  //same as Parse(), except the RDA keeps the RDA-string's chars, and a level of child Elements is only indexed when it's first accessed
+  //(e.g. via GetRda()), and a value is only un-escaped when it's read. An unmodified branch is output by ToString() as its original chars.
+  public static Rda ParseLazy(String rdaString) {
+    char[] rdaChars = rdaString == null ? new char[0] : rdaString.toCharArray();
+    RdaEncoding encoding = GetHeaderSectionEncoder(rdaChars);
     Rda rda = new Rda(encoding);
     if (encoding.Delimiters.length == 0) {
       rda.SetScalarValue(rdaString);
     } else {
-      String payload = rdaString.substring(encoding.Delimiters.length + 2);
-      rda.ParsePayload(
-        payload,
-        DetermineParsingFormatVersion(payload) == FORMATTING_VERSION.V2
+      int payloadStart = encoding.Delimiters.length + 2;
+      var formattingVersion = DetermineParsingFormatVersion(
+        rdaChars,
+        payloadStart,
+        rdaChars.length
       );
+      rda._source =
+        new CharArraySource(
+          rdaChars,
+          encoding,
+          formattingVersion == FORMATTING_VERSION.V2
+        );
+      rda._sourceStart = payloadStart;
+      rda._sourceEnd = rdaChars.length;
+      rda._dimension = encoding.Delimiters.length;
     }
 
     return rda;
   }
 
+  //lazy parsing of a (large) RDA file, which is memory-mapped rather than read into memory. The file must be in an ASCII-compatible charset
+  //(UTF-8, US-ASCII or ISO-8859-1), and the sections are indexed on the file's bytes and decoded when they're accessed (as in ParseLazy(String)).
+  //NB, a file that has non-ASCII encoding chars (or a different charset) is read into memory and parsed by ParseLazy(String).
+  public static Rda ParseLazy(Path rdaFile, Charset charset)
+    throws IOException {
+    try (FileChannel channel = FileChannel.open(rdaFile)) {
+      Rda rda = ParseLazy(ByteSource.Map(channel), channel.size(), charset);
+      return rda != null
+        ? rda
+        : ParseLazy(new String(Files.readAllBytes(rdaFile), charset));
+    }
+  }
+
+  //parses the UTF-8 bytes of an RDA-string (e.g. as received from the network) without decoding them into chars first.
+  //The sections are indexed on the bytes as in ParseLazy(), and a value is only decoded (and un-escaped) when it's read.
+  //NB, the RDA keeps the bytes (the array isn't copied), so they must not be modified while the RDA is in use.
+  public static Rda Parse(byte[] rdaBytes) {
+    return Parse(ByteBuffer.wrap(rdaBytes == null ? new byte[0] : rdaBytes));
+  }
+
+  //parses the UTF-8 bytes between the buffer's position and limit, as Parse(byte[]). The buffer's position isn't changed.
+  public static Rda Parse(ByteBuffer rdaBytes) {
+    ByteBuffer bytes = rdaBytes.slice();
+    Rda rda = ParseLazy(
+      ByteSource.Split(bytes),
+      bytes.remaining(),
+      StandardCharsets.UTF_8
+    );
+    return rda != null
+      ? rda
+      : ParseLazy(StandardCharsets.UTF_8.decode(bytes).toString());
+  }
+
+  //lazy parsing of the bytes of an RDA-string in the charset, returns null if the bytes can't be indexed directly, that is, the charset
+  //isn't ASCII-compatible, or the bytes don't start with a header section of ASCII chars
+  private static Rda ParseLazy(
+    ByteBuffer[] segments,
+    long size,
+    Charset charset
+  ) {
+    if (!IsAsciiCompatible(charset)) {
+      return null;
+    }
+
+    //the header section and the payload's first line are read from the leading bytes (each byte as a char, a non-ASCII
+    //byte is never taken as an encoding char), which are extended until the header and the formatting are determined
+    int prefixLength = (int) Math.min(size, HEADER_PREFIX_SIZE);
+    while (true) {
+      char[] prefixChars = ByteSource.ByteChars(segments, prefixLength);
+      int headerSectionEnd = HeaderSectionEnd(prefixChars, prefixLength);
+      if (headerSectionEnd < 0 && prefixLength < size) {
+        prefixLength = (int) Math.min(size, prefixLength * 4L);
+        continue;
+      } else if (
+        headerSectionEnd <= 0 || !RangeIsAscii(prefixChars, 0, headerSectionEnd)
+      ) {
+        return null;
+      }
+
+      int payloadStart = headerSectionEnd + 1;
+      var formattingVersion = FirstLineFormatVersion(
+        prefixChars,
+        payloadStart,
+        prefixLength
+      );
+      if (formattingVersion == null && prefixLength < size) {
+        prefixLength = (int) Math.min(size, prefixLength * 4L);
+        continue;
+      }
+
+      RdaEncoding encoding = HeaderSectionEncoder(
+        prefixChars,
+        headerSectionEnd
+      );
+      Rda rda = new Rda(encoding);
+      rda._source =
+        new ByteSource(
+          segments,
+          charset,
+          encoding,
+          formattingVersion == FORMATTING_VERSION.V2
+        );
+      rda._sourceStart = payloadStart; //the header section's chars are single bytes
+      rda._sourceEnd = size;
+      rda._dimension = encoding.Delimiters.length;
+      return rda;
+    }
+  }
+
   /**
    * Derived properties from the "storage fields" and the encoding field
    */
 
   public String PayLoad() {
-    return GetPayload(DelimitersInUse(), FORMATTING_VERSION.V1);
+    return GetPayload(FORMATTING_VERSION.V1);
   }
 
   public String PayLoadV2() {
-    return GetPayload(DelimitersInUse(), FORMATTING_VERSION.V2);
+    return GetPayload(FORMATTING_VERSION.V2);
   }
 
   //it's the max-depth towards the bottom, it determines the number of delimiters required for encoding this RDA,
   public int Dimension() {
-    //if (Elements.Count == 1) { return Elements[0].Dimension; }
-    int maxChildDimemsion = -1;
-    for (Rda c : Elements) {
-      maxChildDimemsion = Math.max(maxChildDimemsion, c.Dimension());
+    if (_dimension < 0) {
+      if (IsSourceBranch() && Elements.isEmpty()) {
+        _dimension = _source.Delimiters.length - _sourceLevel; //parsed sections always extend to the bottom level
+      } else {
+        //if (Elements.Count == 1) { return Elements[0].Dimension; }
+        int maxChildDimemsion = -1;
+        for (Rda c : Elements) {
+          maxChildDimemsion = Math.max(maxChildDimemsion, c.Dimension());
+        }
+        _dimension = maxChildDimemsion + 1;
+      }
     }
 
-    return maxChildDimemsion + 1;
+    return _dimension;
   }
 
   //the number of steps from the root Parent RDA
   //it's used as the index to Delimiters array for determing the next-level delimiter
-  private int Level() {
-    return Parent == null ? 0 : Parent.Level() + 1;
+  int Level() {
+    return Parent == null ? 0 : _level;
   }
 
   /**
@@ -134,29 +518,32 @@ public class Rda implements IRda {
   //the client's 'string value' stored in this RDA.
   //For Dimension-0 (leaf) RDA, it's the stored scalar-value, for composite RDA (dimension > 0), it's the left-most child's scalar-value
   public String GetScalarValue() {
+    if (IsSourceBranch() && Elements.isEmpty()) {
+      return FirstSourceValue(); //no need to index the Elements
+    }
     return Elements.size() > 0
       ? Elements.get(0).GetScalarValue()
-      : ((_scalarValue == null) ? "" : _scalarValue);
+      : getValueOrDefault(ScalarValue(), "");
   }
 
   //sets the scalar-value, and clears Elements (making this a Dimension-0 rda)
   public void SetScalarValue(String value) {
+    _source = null;
+    if (Parent != null) {
+      Parent.DetachSource();
+    }
+    int oldDimension = _dimension;
     Elements.clear();
     _scalarValue = value;
+    _dimension = 0;
+    DimensionChanged(oldDimension);
+    ContentChanged();
   }
 
   //this rda's "string expression", i.e. a properly encoded RDA string with the header and the payload sections
   //NB, for Dimension-0 RDA, it outputs the stored scalar value (i.e. the header-section is an empty string in this case)
   public String ToString() {
-    return Dimension() == 0
-      ? GetScalarValue()
-      : String.format(
-        "%s%c%c%s",
-        new String(DelimitersInUse()),
-        EscapeChar(),
-        DelimitersInUse()[0],
-        PayLoad()
-      );
+    return ToString(FORMATTING_VERSION.V1);
   }
 
   public String toString() {
@@ -166,45 +553,155 @@ public class Rda implements IRda {
   //this rda's 'string expression, with version-2 formatting applied.
   //version-2 formatting uses redundant formatting chars such as white-space, line-breaks, and double-quotes in the payload's encoding
   public String ToStringFormatted() {
-    return Dimension() == 0
-      ? GetScalarValue()
-      : String.format(
-        "%s%c%c%s %s",
-        new String(DelimitersInUse()),
-        EscapeChar(),
-        DelimitersInUse()[0],
-        LINE_BREAK,
-        PayLoadV2()
-      );
+    return ToString(FORMATTING_VERSION.V2);
+  }
+
+  //same as ToString(), except the Elements of a large RDA (or branch) are encoded in groups concurrently on the fork-join pool
+  public String ToString(ForkJoinPool pool) {
+    return ToString(FORMATTING_VERSION.V1, pool);
+  }
+
+  public String ToStringFormatted(ForkJoinPool pool) {
+    return ToString(FORMATTING_VERSION.V2, pool);
+  }
+
+  private String ToString(FORMATTING_VERSION formattingVersion) {
+    return ToString(formattingVersion, null);
+  }
+
+  private String ToString(
+    FORMATTING_VERSION formattingVersion,
+    ForkJoinPool pool
+  ) {
+    if (Dimension() == 0) {
+      return GetScalarValue();
+    }
+
+    StringBuilder result = new StringBuilder();
+    try {
+      WriteTo(result, formattingVersion, pool);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by StringBuilder
+    }
+    return result.toString();
+  }
+
+  //writes this rda's "string expression" (as returned by ToString()) to the output, in a single pass through the RDA tree
+  //so the encoded RDA-string isn't built in memory
+  public void WriteTo(Appendable output) throws IOException {
+    WriteTo(output, FORMATTING_VERSION.V1);
+  }
+
+  public void WriteTo(Appendable output, FORMATTING_VERSION formattingVersion)
+    throws IOException {
+    WriteTo(output, formattingVersion, null);
+  }
+
+  //the Elements of a large RDA (or branch) are encoded in groups concurrently on the fork-join pool, and are written to the output in order
+  public void WriteTo(
+    Appendable output,
+    FORMATTING_VERSION formattingVersion,
+    ForkJoinPool pool
+  ) throws IOException {
+    if (Dimension() == 0) {
+      output.append(GetScalarValue());
+      return;
+    }
+
+    //the header section
+    char[] delimiterChars = DelimitersInUse();
+    for (char delimiter : delimiterChars) {
+      output.append(delimiter);
+    }
+    output.append(EscapeChar());
+    output.append(delimiterChars[0]);
+    if (formattingVersion == FORMATTING_VERSION.V2) {
+      output.append(LINE_BREAK).append(' ');
+    }
+
+    //the payload section
+    WritePayload(
+      output,
+      new RdaEncoding.DelimiterTable(delimiterChars),
+      formattingVersion,
+      IndentDepth(),
+      pool
+    );
+  }
+
+  //writes the encoded RDA-string to the output stream, using the charset for encoding the chars.
+  //the output stream is flushed but is not closed.
+  public void WriteTo(OutputStream output, Charset charset) throws IOException {
+    WriteTo(output, charset, FORMATTING_VERSION.V1);
+  }
+
+  public void WriteTo(
+    OutputStream output,
+    Charset charset,
+    FORMATTING_VERSION formattingVersion
+  ) throws IOException {
+    Writer writer = charset.equals(StandardCharsets.UTF_8)
+      ? new Utf8Writer(output) //encodes the chars directly, and copies the unmodified sections of a UTF-8 source as-is
+      : new BufferedWriter(new OutputStreamWriter(output, charset));
+    WriteTo(writer, formattingVersion);
+    writer.flush();
+  }
+
+  //the UTF-8 bytes of this rda's "string expression", encoded without building the RDA-string first
+  public byte[] ToBytes() {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try {
+      WriteTo(output, StandardCharsets.UTF_8);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by ByteArrayOutputStream
+    }
+    return output.toByteArray();
   }
 
   //set a child RDA at the index'd location, extend the max index if required
   public void SetRda(int index, Rda childRda)
     throws Exception {
+    DetachSource();
     EnsureArrayLength(index); //creates dummies if required
 
+    int replacedDimension = Elements.get(index).Dimension();
     if (childRda != null) {
       GlobalEncoding().ExtendDelimiters(Level() + childRda.Dimension() + 1); //throws Exception if limit is reached
-      childRda.Parent = this;
+      childRda.AttachTo(this);
 
       Elements.set(index, childRda);
     } else {
       GlobalEncoding().ExtendDelimiters(Level() + 1); //throws Exception if limit is reached
-      Elements.set(index, new Rda(this)); //make a dummy
+      childRda = new Rda(this); //make a dummy
+      Elements.set(index, childRda);
+    }
+
+    if (childRda.Dimension() >= replacedDimension) {
+      ChildDimensionIncreased(childRda.Dimension());
+    } else {
+      ChildDimensionDecreased();
     }
+    ContentChanged();
   }
 
   //get a child RDA at the index'd location, return null if RDA is not allocated
   public Rda GetRda(int index) throws Exception {
     GlobalEncoding().ExtendDelimiters(Level() + 1); //throws Exception if limit is reached
+    IndexElements();
     if (Dimension() == 0) {
       //push existing scalar value to become the left-most child's value
       Rda rda = new Rda(this);
-      rda.SetScalarValue(_scalarValue);
+      rda.SetScalarValue(ScalarValue());
+      DetachSource();
       Elements.add(rda);
+      ChildDimensionIncreased(0);
+      ContentChanged();
     }
 
-    EnsureArrayLength(index); //creates dummies if required
+    if (index >= Elements.size()) {
+      DetachSource();
+      EnsureArrayLength(index); //creates dummies if required
+    }
 
     //the indexed child can be safely retrived
     return Elements.get(index);
@@ -222,30 +719,33 @@ public class Rda implements IRda {
     return getValueOrDefault(GetRda(index).GetScalarValue(), "");
   }
 
-  public Rda GetRda(int[] sectionIndexAddress)
-    throws Exception {
-    if (sectionIndexAddress == null || sectionIndexAddress.length == 0) {
-      return this;
-    } else {
-      var child = GetRda(
-        sectionIndexAddress[0]
-      );/* this auto extends the # of dummy Elements at this level, if it's over indexed (unless it exceeds dimension limit */
-
-      if (sectionIndexAddress.length == 1 || child == null) {
-        return child;
-      } else {
-        int[] nextLevelSectionIndexAddress = new int[sectionIndexAddress.length -
-        1];
-        System.arraycopy(
-          sectionIndexAddress,
-          1,
-          nextLevelSectionIndexAddress,
-          0,
-          nextLevelSectionIndexAddress.length
-        );
-        return child.GetRda(nextLevelSectionIndexAddress); //recursion, get next-level child with the remaining index-addresses
+  public Rda GetRda(int... sectionIndexAddress) throws Exception {
+    Rda rda = this;
+    if (sectionIndexAddress != null) {
+      for (int index : sectionIndexAddress) {
+        rda = rda.GetRda(index); /* this auto extends the # of dummy Elements at each level, if it's over indexed (unless it exceeds dimension limit */
       }
     }
+    return rda;
+  }
+
+  //the addressed child RDA, or null if it isn't there - unlike GetRda(), it never creates (dummy) Elements.
+  //As in GetRda(), the index-0 child of a Dimension-0 RDA is the RDA itself, and a null address is this RDA.
+  public Rda PeekRda(int... sectionIndexAddress) {
+    Rda rda = this;
+    if (sectionIndexAddress == null) {
+      return rda;
+    }
+    for (int i = 0; rda != null && i < sectionIndexAddress.length; i++) {
+      rda = rda.PeekChild(sectionIndexAddress[i]);
+    }
+    return rda;
+  }
+
+  //the addressed child RDA's value, or "" if it isn't there
+  public String PeekValue(int... sectionIndexAddress) {
+    Rda rda = PeekRda(sectionIndexAddress);
+    return rda == null ? "" : rda.GetScalarValue();
   }
 
   /// <summary>
@@ -261,54 +761,163 @@ public class Rda implements IRda {
     }
   }
 
-  public String GetValue(int[] addressIndexArray) throws Exception {
+  public String GetValue(int... addressIndexArray) throws Exception {
     var childRda = GetRda(addressIndexArray);
 
     return getValueOrDefault(childRda.GetScalarValue(), "");
   }
 
+  /**
+   * Primitive-typed accessors - a lazily parsed (unmodified) value is parsed from its source section, without being
+   * un-escaped into a String. NB, like the parseXxx() methods, a value that isn't a number throws NumberFormatException.
+   *
+   * A value is stored as its decimal String (the Rda's value model), so a setter allocates that String, but the setters
+   * by index set it on the existing leaf child in place, rather than on a new child RDA (as SetValue() does).
+   */
+
+  public int GetInt(int... addressIndexArray) throws Exception {
+    return GetRda(addressIndexArray).IntValue();
+  }
+
+  public long GetLong(int... addressIndexArray) throws Exception {
+    return GetRda(addressIndexArray).LongValue();
+  }
+
+  public double GetDouble(int... addressIndexArray) throws Exception {
+    return GetRda(addressIndexArray).DoubleValue();
+  }
+
+  //true if the value is "true" (ignoring case), as Boolean.parseBoolean()
+  public boolean GetBoolean(int... addressIndexArray) throws Exception {
+    return GetRda(addressIndexArray).BooleanValue();
+  }
+
+  public void SetInt(int index, int value) throws Exception {
+    SetLeafValue(index, Integer.toString(value));
+  }
+
+  public void SetInt(int[] addressIndexArray, int value) throws Exception {
+    SetValue(addressIndexArray, Integer.toString(value));
+  }
+
+  public void SetLong(int index, long value) throws Exception {
+    SetLeafValue(index, Long.toString(value));
+  }
+
+  public void SetLong(int[] addressIndexArray, long value) throws Exception {
+    SetValue(addressIndexArray, Long.toString(value));
+  }
+
+  public void SetDouble(int index, double value) throws Exception {
+    SetLeafValue(index, Double.toString(value));
+  }
+
+  public void SetDouble(int[] addressIndexArray, double value)
+    throws Exception {
+    SetValue(addressIndexArray, Double.toString(value));
+  }
+
   public void AddValue(String valueString) throws Exception {
-    SetValue(Elements.size(), valueString);
+    SetValue(Length(), valueString);
   }
 
   public void AddRda(Rda rda) throws Exception {
-    SetRda(Elements.size(), rda);
+    SetRda(Length(), rda);
   }
 
   public String[] GetElementsValueArray() {
-    List<String> result = new ArrayList();
+    List<String> result = new ArrayList<>();
+    IndexElements();
     if (Elements.size() == 0) {
-      result.add(_scalarValue);
+      result.add(ScalarValue());
     } else {
       for (var child : Elements) {
         result.add(child.GetScalarValue());
       }
     }
-    return (String[]) result.toArray();
+    return result.toArray(new String[0]);
+  }
+
+  //the Elements as a stream, a leaf RDA has no children. The stream is sized, and it's split evenly by the index range for
+  //parallel processing, see RdaSpliterator. NB, as with the other API methods, the RDA must not be changed while it's being
+  //streamed
+  public Stream<Rda> Children() {
+    if (Length() == 0) {
+      return Stream.empty();
+    }
+    return StreamSupport.stream(new RdaSpliterator(this, 1), false);
+  }
+
+  //the leaf RDAs (including the dummies), in the order of their index-addresses, see RdaSpliterator
+  public Stream<Rda> Leaves() {
+    if (Length() == 0) {
+      return Stream.of(this);
+    }
+    return StreamSupport.stream(
+      new RdaSpliterator(this, RdaSpliterator.LEAVES),
+      false
+    );
+  }
+
+  //the values of the elements at the depth, e.g. ValuesAt(2) of a table are the values of all its rows' fields.
+  //As with GetRda(), a leaf's index-0 element is itself, so a leaf above the depth has a value at the depth
+  public Stream<String> ValuesAt(int depth) {
+    if (depth < 0) {
+      throw new IllegalArgumentException(
+        String.format("Invalid depth %d.", depth)
+      );
+    } else if (depth == 0) {
+      return Stream.of(GetScalarValue());
+    }
+    return StreamSupport
+      .stream(new RdaSpliterator(this, depth), false)
+      .map(Rda::GetScalarValue);
   }
 
   public void SetElementsValueArray(String[] value) {
+    _source = null;
+    if (Parent != null) {
+      Parent.DetachSource();
+    }
+    int oldDimension = _dimension;
     Elements.clear();
     if (value == null || value.length == 0) {
       _scalarValue = null;
+      _dimension = 0;
     } else {
       for (var s : value) {
         var child = new Rda(this);
         child.SetScalarValue(s);
         Elements.add(child);
       }
+      _dimension = 1;
     }
+    DimensionChanged(oldDimension);
+    ContentChanged();
   }
 
+  //compares the RDAs' dimensions, lengths and values, branch by branch - the comparison ends at the first difference, which
+  //can be the different (cached) content hashes of two branches
   public boolean ContentEqual(Rda other) {
-    if (
-      this.Dimension() != other.Dimension() || this.Length() != other.Length()
+    if (other == this) {
+      return true;
+    } else if (
+      other == null ||
+      (_contentHash != 0 &&
+        other._contentHash != 0 &&
+        _contentHash != other._contentHash)
     ) {
       return false;
-    } else if (this.Dimension() == 0) {
+    }
+
+    int length = this.Length();
+    int dimension = this.Dimension(); //the dimension is cached, so it's not re-calculated for each branch
+    if (dimension != other.Dimension() || length != other.Length()) {
+      return false;
+    } else if (dimension == 0) {
       return this.GetScalarValue().equals(other.GetScalarValue());
     } else {
-      for (int i = 0; i < Length(); i++) {
+      for (int i = 0; i < length; i++) {
         if (Elements.get(i).ContentEqual(other.Elements.get(i)) == false) {
           return false;
         }
@@ -317,6 +926,50 @@ public class Rda implements IRda {
     }
   }
 
+  //RDAs with the same content (see ContentEqual()) are equal, e.g. as map keys or for de-duplicating messages.
+  //NB, as any mutable key, an RDA shouldn't be changed while it's a key in a map
+  @Override
+  public boolean equals(Object obj) {
+    return obj instanceof Rda && ContentEqual((Rda) obj);
+  }
+
+  //the hash of the content, which is cached for each branch until the branch is changed, so re-hashing a changed RDA only
+  //re-calculates the changed branches
+  @Override
+  public int hashCode() {
+    int hash = _contentHash;
+    if (hash == 0) {
+      int length = Length();
+      int dimension = Dimension();
+      if (dimension == 0) {
+        hash = GetScalarValue().hashCode();
+      } else {
+        hash = dimension;
+        for (int i = 0; i < length; i++) {
+          hash = 31 * hash + Elements.get(i).hashCode();
+        }
+      }
+      _contentHash = hash = hash == 0 ? 1 : hash; //0 is for not calculated
+    }
+    return hash;
+  }
+
+  //the patch that changes the from-RDA into (an RDA with the content of) the to-RDA, see RdaDiff - the patch is an RDA itself,
+  //so e.g. a large and mostly unchanged RDA can be updated by sending the patch's RDA-string, rather than the whole RDA
+  public static Rda Diff(Rda from, Rda to) throws Exception {
+    return RdaDiff.Diff(from, to);
+  }
+
+  //changes this RDA by the patch, which is the Diff() of this RDA's content and the new content
+  public void ApplyPatch(Rda patch) throws Exception {
+    RdaDiff.Apply(this, patch);
+  }
+
+  //an immutable snapshot of this RDA's content, which can be read by any number of threads concurrently
+  public FrozenRda Freeze() {
+    return new FrozenRda(this);
+  }
+
   //remove unused delimiters in the header
   public String ToStringMinimal() {
     CompressDimension(); //remove unnecessary levels if a branch only has one leaf-node
@@ -334,6 +987,7 @@ public class Rda implements IRda {
   }
 
   public int Length() {
+    IndexElements();
     return Elements.size();
   }
 
@@ -349,37 +1003,65 @@ public class Rda implements IRda {
     return subArray;
   }
 
-  private void ParsePayload(String payloadString, boolean v2Formatted) {
-    Elements.clear();
+  //parsing helpers (see RdaParser) - the parsed content is set directly, as the parser keeps the tree's cached properties
 
-    //apply maximun unescape to "string-value" before it's stored
-    //this will be reversed (escaped) when the value is used for assembling a payload section.
-    _scalarValue =
-      UnEscape(
-        payloadString,
-        GlobalEncoding().Delimiters,
-        EscapeChar(),
-        v2Formatted
-      );
+  //re-initializes the (root) RDA for the parsed encoding, the Elements are kept for the parser to re-use
+  void ResetParsedRoot(RdaEncoding encoding) {
+    _encoding = encoding;
+    _globalEncoding = null;
+    _level = 0;
+  }
 
-    //... then continue to (recurrsively) parse the rda-encoded payload string ..
+  //re-initializes the RDA for its parsed content of the dimension
+  void ResetParsed(int dimension) {
+    _source = null;
+    _scalarValue = null;
+    _dimension = dimension;
+    _contentHash = 0;
+  }
 
-    //make sure the parsing doesn't go beyond the RDA-string "levels" limit (set by the encoding header section)
-    if (Level() < GlobalEncoding().Delimiters.length) {
-      List<String> sections = ParseElementsContentSections(payloadString);
-      //if (sections.Count > 1)
-      //{
-      for (String childPayLoad : sections) {
-        var child = new Rda(this);
-        child.ParsePayload(childPayLoad, v2Formatted);
+  //the parsed element at the index, the existing element is re-used if there is one
+  Rda ParsedChild(int index, int dimension) {
+    Rda child;
+    if (index < Elements.size()) {
+      child = Elements.get(index);
+      child.Parent = this;
+      child._encoding = null;
+      child._globalEncoding = GlobalEncoding();
+      child._level = Level() + 1;
+    } else {
+      child = new Rda(this);
+      Elements.add(child);
+    }
+    child.ResetParsed(dimension);
+    return child;
+  }
 
-        Elements.add(child);
-      }
+  void SetParsedValue(String value) {
+    _scalarValue = value;
+  }
+
+  //removes the Elements from the index, e.g. when a patch shortens this RDA
+  void RemoveElements(int fromIndex) {
+    IndexElements();
+    DetachSource();
+    if (fromIndex < Elements.size()) {
+      TruncateElements(fromIndex);
+      ChildDimensionDecreased();
+      ContentChanged();
+    }
+  }
+
+  //removes the (re-used) Elements after the parsed ones
+  void TruncateElements(int length) {
+    for (int i = Elements.size() - 1; i >= length; i--) {
+      Elements.remove(i);
     }
   }
 
   public void CompressDimension()
   {
+      IndexElements();
       if (Dimension() > 0)
       {
           //compress all children (recursion)
@@ -426,12 +1108,24 @@ public class Rda implements IRda {
   /// RDA is v2-formatted if the first line only contains the header section and trailing white-spaces.
   /// In v2-formatted RDA, leading/trailing spaces and line-breakes are for formatting and are not considered as part of the element's string value.
   /// </summary>
-  private static FORMATTING_VERSION DetermineParsingFormatVersion(
-    String payloadString
+  static FORMATTING_VERSION DetermineParsingFormatVersion(
+    char[] valueCharArray,
+    int payloadStart,
+    int payloadEnd
   ) {
-    char[] valueCharArray = payloadString.toCharArray();
+    return getValueOrDefault(
+      FirstLineFormatVersion(valueCharArray, payloadStart, payloadEnd),
+      FORMATTING_VERSION.V1 //valueCharArray are all white-space chars
+    );
+  }
 
-    for (int i = 0; i < valueCharArray.length; i++) {
+  //the formatting version determined by the (first line of the) payload chars, null if the chars are all white-space chars
+  static FORMATTING_VERSION FirstLineFormatVersion(
+    char[] valueCharArray,
+    int payloadStart,
+    int payloadEnd
+  ) {
+    for (int i = payloadStart; i < payloadEnd; i++) {
       char currChar = valueCharArray[i];
       if (
         !Character.isWhitespace(currChar)
@@ -444,7 +1138,7 @@ public class Rda implements IRda {
       }
     }
 
-    return FORMATTING_VERSION.V1; //valueCharArray are all white-space chars
+    return null;
   }
 
   //In RDA encoded char array (string) the first char is the 1st-level-array-delimiter, and the first repeat of the 1st-level-array-delimiter in
@@ -452,54 +1146,90 @@ public class Rda implements IRda {
   //the mandatory escape-char is the second-last char of the encoder section (before the first repeat of the 1st-level-array-delimiter).
   //Thus a minimal RDA encoder section must have at least 3-chars long. In addtion, encoder chars (delimiters and escape-char) in the encoder section
   //must be not-white-space, printable (not control-chars), and non-alphanumeric, plus the double-quote char is reserved (for enclosing leading/trailing spaces in v2-formatted rda strings)
-  private static RdaEncoding GetHeaderSectionEncoder(String rdaString) {
-    //   if(String.isnull(rdaString) == false)
-    if (!(rdaString == null || rdaString.equals(""))) {
-      char[] valueCharArray = rdaString.toCharArray();
-      for (int i = 0; i < valueCharArray.length; i++) {
-        char currChar = valueCharArray[i];
-
-        //NB, this check is not part of the RDA Specification, it adds "editor friendlyness" but introduces restriction meaning less available delimiters options.
-        //this is required for v2-formatting where leading/trailing whites-space/control-char/double-quote are ignored in parsing
-        //also preferrable disallow char.IsLetterOrDigit(currChar)
-        if (
-          Character.isWhitespace(currChar) ||
-          Character.isISOControl(currChar) ||
-          /* non-printable */RdaEncoding.DOUBLE_QUOTE == currChar
-        ) {
-          break; //invalid delimiter char
-        }
+  static RdaEncoding GetHeaderSectionEncoder(char[] valueCharArray) {
+    int headerSectionEndIndex = HeaderSectionEnd(
+      valueCharArray,
+      valueCharArray.length
+    );
+    return headerSectionEndIndex > 0
+      ? HeaderSectionEncoder(valueCharArray, headerSectionEndIndex)
+      : new RdaEncoding();
+  }
 
-        //else
-        if (RangeContains(valueCharArray, 0, i, currChar)) {
-          if (currChar == valueCharArray[0] && i > 1) {
-            // repeat of the primary delimiter found, construct the encoder from the header
-            int headerSectionEndIndex = i;
-            var delimiters = new char[headerSectionEndIndex - 1];
-            System.arraycopy(
-              valueCharArray,
-              0,
-              delimiters,
-              0,
-              headerSectionEndIndex - 1
-            );
-            return new RdaEncoding(
-              delimiters,
-              valueCharArray[headerSectionEndIndex - 1]
-            );
-          } else {
-            break; //invalid repeat in header
-          }
+  //returns the index of the header section's end (i.e. the repeat of the primary delimiter) in valueCharArray[0, length),
+  //0 if the chars don't start with a valid header section, or -1 if more chars are required for determining the header section
+  static int HeaderSectionEnd(char[] valueCharArray, int length) {
+    for (int i = 0; i < length; i++) {
+      char currChar = valueCharArray[i];
+
+      //NB, this check is not part of the RDA Specification, it adds "editor friendlyness" but introduces restriction meaning less available delimiters options.
+      //this is required for v2-formatting where leading/trailing whites-space/control-char/double-quote are ignored in parsing
+      //also preferrable disallow char.IsLetterOrDigit(currChar)
+      if (
+        Character.isWhitespace(currChar) ||
+        Character.isISOControl(currChar) ||
+        /* non-printable */RdaEncoding.DOUBLE_QUOTE == currChar
+      ) {
+        return 0; //invalid delimiter char
+      }
+
+      //else
+      if (RangeContains(valueCharArray, 0, i, currChar)) {
+        if (currChar == valueCharArray[0] && i > 1) {
+          return i; // repeat of the primary delimiter found
+        } else {
+          return 0; //invalid repeat in header
         }
       }
     }
-    return new RdaEncoding();
+    return -1;
   }
 
-  //helper -tests if the source array contains a targeted char in the given range
-  static boolean RangeContains(
-    char[] sourceCharArray,
-    int rangeStartIndex,
+  //construct the encoder from the header
+  static RdaEncoding HeaderSectionEncoder(
+    char[] valueCharArray,
+    int headerSectionEndIndex
+  ) {
+    var delimiters = new char[headerSectionEndIndex - 1];
+    System.arraycopy(
+      valueCharArray,
+      0,
+      delimiters,
+      0,
+      headerSectionEndIndex - 1
+    );
+    return new RdaEncoding(
+      delimiters,
+      valueCharArray[headerSectionEndIndex - 1]
+    );
+  }
+
+  //the leading bytes first read for determining the header section of an RDA-string's bytes
+  static final int HEADER_PREFIX_SIZE = 1 << 6;
+
+  static boolean IsAsciiCompatible(Charset charset) {
+    return (
+      charset.equals(StandardCharsets.UTF_8) ||
+      charset.equals(StandardCharsets.US_ASCII) ||
+      charset.equals(StandardCharsets.ISO_8859_1)
+    );
+  }
+
+  static boolean RangeIsAscii(
+    char[] sourceCharArray,
+    int rangeStartIndex,
+    int rangeEndIndex
+  ) {
+    for (int range = rangeStartIndex; range < rangeEndIndex; range++) {
+      if (sourceCharArray[range] > 0x7F) return false;
+    }
+    return true;
+  }
+
+  //helper -tests if the source array contains a targeted char in the given range
+  static boolean RangeContains(
+    char[] sourceCharArray,
+    int rangeStartIndex,
     int rangeEndIndex,
     char targetChar
   ) {
@@ -511,50 +1241,146 @@ public class Rda implements IRda {
 
   static String UnEscape(
     String payloadString,
-    char[] delimiters,
+    RdaEncoding.DelimiterTable delimiters,
     char escapeChar,
     boolean v2Formatted
+  ) {
+    if (
+      payloadString == null ||
+      (!v2Formatted && payloadString.indexOf(escapeChar) < 0)
+    ) {
+      return payloadString; //nothing to un-escape
+    }
+    char[] valueChars = payloadString.toCharArray();
+    return UnEscape(
+      valueChars,
+      0,
+      valueChars.length,
+      delimiters,
+      escapeChar,
+      v2Formatted
+    );
+  }
+
+  //un-escapes the section chars[sectionStart, sectionEnd) directly from the source char array
+  static String UnEscape(
+    char[] valueChars,
+    int sectionStart,
+    int sectionEnd,
+    RdaEncoding.DelimiterTable delimiters,
+    char escapeChar,
+    boolean v2Formatted
+  ) {
+    return UnEscape(
+      valueChars,
+      sectionStart,
+      sectionEnd,
+      delimiters,
+      escapeChar,
+      v2Formatted,
+      null
+    );
+  }
+
+  //a section that doesn't need un-escaping is taken from the value-cache, if there is one
+  static String UnEscape(
+    char[] valueChars,
+    int sectionStart,
+    int sectionEnd,
+    RdaEncoding.DelimiterTable delimiters,
+    char escapeChar,
+    boolean v2Formatted,
+    RdaValueCache valueCache
+  ) {
+    return UnEscape(
+      valueChars,
+      sectionStart,
+      sectionEnd,
+      delimiters,
+      escapeChar,
+      v2Formatted,
+      valueCache,
+      null
+    );
+  }
+
+  //the un-escaped chars are collected in the buffer (which is cleared first), if there is one
+  static String UnEscape(
+    char[] valueChars,
+    int sectionStart,
+    int sectionEnd,
+    RdaEncoding.DelimiterTable delimiters,
+    char escapeChar,
+    boolean v2Formatted,
+    RdaValueCache valueCache,
+    StringBuilder buffer
   ) {
     //no escaping is required if string is too short
-    if (payloadString == null || payloadString.equals("")) {
-      return payloadString;
-    } else if (payloadString.trim().length() < 2) {
-      return !v2Formatted ? payloadString : payloadString.trim();
-    }
-    //for v2-formatted RDA, remove the starting/ending double-quote-char (maximun one only) if it presents
-    //double-quote-char is used (in v2-formatted RDA) for enclosing leading and trailing spaces in string value
-    char[] valueChars;
+    int firstCharIndex = sectionStart, lastCharIndex = sectionEnd - 1;
+    while (
+      firstCharIndex <= lastCharIndex && valueChars[firstCharIndex] <= ' '
+    ) {
+      firstCharIndex++;
+    }
+    while (
+      lastCharIndex >= firstCharIndex && valueChars[lastCharIndex] <= ' '
+    ) {
+      lastCharIndex--;
+    }
+    if (lastCharIndex - firstCharIndex + 1 < 2) {
+      return !v2Formatted
+        ? NewString(
+          valueChars,
+          sectionStart,
+          sectionEnd - sectionStart,
+          valueCache
+        )
+        : NewString(
+          valueChars,
+          firstCharIndex,
+          lastCharIndex - firstCharIndex + 1,
+          valueCache
+        );
+    }
+
     if (v2Formatted) {
-      payloadString = payloadString.trim();
-      valueChars = payloadString.toCharArray();
-      int firstCharIndex = 0, lastCharIndex = valueChars.length - 1;
+      //for v2-formatted RDA, remove the starting/ending double-quote-char (maximun one only) if it presents
+      //double-quote-char is used (in v2-formatted RDA) for enclosing leading and trailing spaces in string value
       if (valueChars[firstCharIndex] == RdaEncoding.DOUBLE_QUOTE) {
         firstCharIndex++;
       }
       if (valueChars[lastCharIndex] == RdaEncoding.DOUBLE_QUOTE) {
         lastCharIndex--;
       }
-
-      char[] trimmedChars = new char[lastCharIndex - firstCharIndex + 1];
-      if (trimmedChars.length == 0) {
+      if (lastCharIndex < firstCharIndex) {
         return "";
       }
-      System.arraycopy(
+    } else {
+      firstCharIndex = sectionStart;
+      lastCharIndex = sectionEnd - 1;
+    }
+
+    //now do the un-escaping, a section without the escape-char is taken as-is
+    if (
+      !RangeContains(valueChars, firstCharIndex, lastCharIndex, escapeChar)
+    ) {
+      return NewString(
         valueChars,
         firstCharIndex,
-        trimmedChars,
-        0,
-        trimmedChars.length
+        lastCharIndex - firstCharIndex + 1,
+        valueCache
       );
-      valueChars = trimmedChars;
-    } else {
-      valueChars = payloadString.toCharArray();
     }
 
-    //now do the un-escaping
-    StringBuilder unescaped = new StringBuilder();
+    StringBuilder unescaped;
+    if (buffer == null) {
+      unescaped = new StringBuilder(lastCharIndex - firstCharIndex + 1);
+    } else {
+      unescaped = buffer;
+      unescaped.setLength(0);
+    }
     boolean escaping = false;
-    for (int i = 0; i < valueChars.length - 1; i++) {
+    for (int i = firstCharIndex; i < lastCharIndex; i++) {
       char currentChar = valueChars[i];
       if (currentChar == escapeChar) {
         escaping = !escaping;
@@ -565,74 +1391,219 @@ public class Rda implements IRda {
       char nextChar = valueChars[i + 1];
       if (
         escaping &&
-        (
-          nextChar == escapeChar ||
-          RangeContains(delimiters, 0, delimiters.length, nextChar)
-        )
+        (nextChar == escapeChar || delimiters.Contains(nextChar))
       ) {
         continue; //skip current char
       }
       unescaped.append(currentChar);
     }
-    unescaped.append(valueChars[valueChars.length - 1]);
+    unescaped.append(valueChars[lastCharIndex]);
 
     return unescaped.toString(); //un-escaped section value
   }
 
+  private static String NewString(
+    char[] chars,
+    int start,
+    int length,
+    RdaValueCache valueCache
+  ) {
+    return valueCache == null
+      ? new String(chars, start, length)
+      : valueCache.Value(chars, start, length);
+  }
+
   static String LINE_BREAK = "\r\n";
   static String INDENT = new String(new char[] { ' ', ' ' });
 
-  String Indent() {
+  //the number of INDENTs at the start of a (v2-formatted) line of this RDA's Elements
+  int IndentDepth() {
     if (Parent == null || Parent.Elements.size() == 1) {
-      return "";
+      return 0;
     } else {
-      return Parent.Indent() + INDENT;
+      return Parent.IndentDepth() + 1;
     }
   }
 
-  //payload = <delimitor at this level> + concatenated Elements payloads (recurrsion)
-  private String GetPayload(
-    char[] delimiterChars,
-    FORMATTING_VERSION formattingVersion
-  ) {
-    boolean applyFormatting = (formattingVersion == FORMATTING_VERSION.V2);
+  private String GetPayload(FORMATTING_VERSION formattingVersion) {
     StringBuilder result = new StringBuilder();
+    try {
+      WritePayload(
+        result,
+        new RdaEncoding.DelimiterTable(DelimitersInUse()),
+        formattingVersion,
+        IndentDepth(),
+        null
+      );
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by StringBuilder
+    }
+    return result.toString();
+  }
+
+  //payload = <delimitor at this level> + concatenated Elements payloads (recurrsion), written to the output depth-first
+  //the Elements of a large RDA are written on the fork-join pool, if it's given (i.e. not null)
+  private void WritePayload(
+    Appendable output,
+    RdaEncoding.DelimiterTable delimitersInUse,
+    FORMATTING_VERSION formattingVersion,
+    int indentDepth,
+    ForkJoinPool pool
+  ) throws IOException {
+    boolean applyFormatting = (formattingVersion == FORMATTING_VERSION.V2);
+    if (!applyFormatting && IsVerbatimSource(delimitersInUse)) {
+      //an unmodified parsed branch is output as its original chars
+      _source.WriteTo(output, _sourceStart, _sourceEnd);
+      return;
+    }
 
-    if (LastNonDummyIndex() < 0) {
+    int lastNonDummyIndex = LastNonDummyIndex();
+    if (lastNonDummyIndex < 0) {
       //apply escaping to the unescaped value (the stored "real/original" value) when it becomes part of a payload
-      var escaped = getValueOrDefault(
-        Escape(_scalarValue, delimiterChars, EscapeChar(), applyFormatting),
-        ""
+      WriteEscaped(
+        output,
+        ScalarValue(),
+        delimitersInUse,
+        EscapeChar(),
+        applyFormatting
+      );
+    } else if (pool != null && lastNonDummyIndex >= PARALLEL_WRITE_ELEMENTS) {
+      WriteElementsParallel(
+        output,
+        lastNonDummyIndex + 1,
+        delimitersInUse,
+        formattingVersion,
+        indentDepth,
+        pool
       );
-      result.append(escaped.toString());
     } else {
-      for (int i = 0; i <= LastNonDummyIndex(); i++) {
-        var child = Elements.get(i);
-        if (applyFormatting) {
-          result.append(GetFormattingPrefix(i)); //TODO replace the below.
-        }
+      WriteElements(
+        output,
+        0,
+        lastNonDummyIndex + 1,
+        delimitersInUse,
+        formattingVersion,
+        indentDepth,
+        pool
+      );
+    }
+  }
 
-        //recurrsion ...
-        result.append(i == 0 ? "" : String.valueOf(ChildDelimiter()));
-        result.append(child.GetPayload(delimiterChars, formattingVersion));
+  //writes the payloads of the Elements [start, end), each preceded by the child-delimiter (and the v2-formatting) as in the whole payload
+  private void WriteElements(
+    Appendable output,
+    int start,
+    int end,
+    RdaEncoding.DelimiterTable delimitersInUse,
+    FORMATTING_VERSION formattingVersion,
+    int indentDepth,
+    ForkJoinPool pool
+  ) throws IOException {
+    boolean applyFormatting = (formattingVersion == FORMATTING_VERSION.V2);
+    char childDelimiter = ChildDelimiter();
+    int childIndentDepth = Elements.size() == 1 ? 0 : indentDepth + 1;
+    for (int i = start; i < end; i++) {
+      if (applyFormatting) {
+        WriteFormattingPrefix(output, i, indentDepth);
       }
+
+      //recurrsion ...
+      if (i > 0) {
+        output.append(childDelimiter);
+      }
+      Elements
+        .get(i)
+        .WritePayload(
+          output,
+          delimitersInUse,
+          formattingVersion,
+          childIndentDepth,
+          pool
+        );
     }
+  }
 
-    return result.toString();
+  //the minimum number of Elements that are written in groups on the fork-join pool, a smaller RDA's Elements are written in sequence
+  static final int PARALLEL_WRITE_ELEMENTS = 1024;
+
+  //the Elements are written in groups concurrently, each into its own buffer, and the buffers are appended to the output in order.
+  //NB, the sibling branches are independent, as the encoding's delimiters (in use) aren't changed by the writing.
+  private void WriteElementsParallel(
+    Appendable output,
+    int count,
+    RdaEncoding.DelimiterTable delimitersInUse,
+    FORMATTING_VERSION formattingVersion,
+    int indentDepth,
+    ForkJoinPool pool
+  ) throws IOException {
+    int groupCount = Math.min(count, pool.getParallelism() * 4);
+    StringBuilder[] groupOutputs = new StringBuilder[groupCount];
+    ForEachParallel(
+      pool,
+      groupCount,
+      group -> {
+        StringBuilder groupOutput = new StringBuilder();
+        try {
+          WriteElements(
+            groupOutput,
+            Split(count, group, groupCount),
+            Split(count, group + 1, groupCount),
+            delimitersInUse,
+            formattingVersion,
+            indentDepth,
+            null
+          );
+        } catch (IOException e) {
+          throw new UncheckedIOException(e); //not thrown by StringBuilder
+        }
+        groupOutputs[group] = groupOutput;
+      }
+    );
+
+    for (StringBuilder groupOutput : groupOutputs) {
+      output.append(groupOutput);
+    }
   }
 
-  private String GetFormattingPrefix(int index) {
+  private void WriteFormattingPrefix(
+    Appendable output,
+    int index,
+    int indentDepth
+  ) throws IOException {
     //if this is the first child ...
     if (index == 0) {
-      return Elements.size() > 1 && Parent != null ? INDENT : "";
+      if (Elements.size() > 1 && Parent != null) {
+        output.append(INDENT);
+      }
     } else {
-      return LINE_BREAK + Indent();
+      output.append(LINE_BREAK);
+      for (int i = 0; i < indentDepth; i++) {
+        output.append(INDENT);
+      }
+    }
+  }
+
+  //helper - appends chars[start, end) to the output, without copying the chars if the output is a StringBuilder or a Writer
+  private static void WriteChars(
+    Appendable output,
+    char[] chars,
+    int start,
+    int end
+  ) throws IOException {
+    if (output instanceof StringBuilder) {
+      ((StringBuilder) output).append(chars, start, end - start);
+    } else if (output instanceof Writer) {
+      ((Writer) output).write(chars, start, end - start);
+    } else {
+      output.append(CharBuffer.wrap(chars, start, end - start));
     }
   }
 
   //dummy child is 'place-holder' that is created when accessor 'over-indexed' the RDA existing values
   boolean IsDummy() {
-    if (Elements.size() == 0) {
+    if (IsSourceBranch()) {
+      return false; //parsed values are never null
+    } else if (Elements.size() == 0) {
       return _scalarValue == null;
     } else {
       //else it's a dummy if all Elements are dummy
@@ -647,6 +1618,7 @@ public class Rda implements IRda {
   }
 
   int LastNonDummyIndex() {
+    IndexElements();
     int lastNonDummyIndex = Elements.size() - 1;
     while (
       lastNonDummyIndex >= 0 &&
@@ -657,6 +1629,236 @@ public class Rda implements IRda {
     return lastNonDummyIndex;
   }
 
+  //the stored scalar value, a lazily parsed leaf's value is un-escaped from its source section on the first read
+  private String ScalarValue() {
+    if (
+      _scalarValue == null &&
+      IsSourceBranch() &&
+      _sourceLevel == _source.Delimiters.length
+    ) {
+      _scalarValue = _source.Value(_sourceStart, _sourceEnd);
+    }
+    return _scalarValue;
+  }
+
+  //the indexed child, or null if it isn't there (see PeekRda())
+  Rda PeekChild(int index) {
+    int length = Length(); //indexes the lazily parsed Elements
+    if (length == 0) {
+      return index == 0 ? this : null;
+    }
+    return index >= 0 && index < length ? Elements.get(index) : null;
+  }
+
+  //this RDA's (scalar) value as a primitive, see GetInt() etc
+  int IntValue() {
+    long value = LongValue();
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException(
+        String.format("Value %d is out of the int range.", value)
+      );
+    }
+    return (int) value;
+  }
+
+  long LongValue() {
+    return IsSourceValue()
+      ? _source.LongValue(_sourceStart, _sourceEnd)
+      : Long.parseLong(GetScalarValue());
+  }
+
+  double DoubleValue() {
+    return IsSourceValue()
+      ? _source.DoubleValue(_sourceStart, _sourceEnd)
+      : Double.parseDouble(GetScalarValue());
+  }
+
+  boolean BooleanValue() {
+    return IsSourceValue()
+      ? _source.BooleanValue(_sourceStart, _sourceEnd)
+      : Boolean.parseBoolean(GetScalarValue());
+  }
+
+  //sets the value of the leaf child at the index in place (a composite child is replaced by a new child RDA, as SetValue())
+  private void SetLeafValue(int index, String value) throws Exception {
+    GlobalEncoding().ExtendDelimiters(Level() + 1); //throws Exception if limit is reached
+    DetachSource();
+    EnsureArrayLength(index); //creates dummies if required
+    Rda child = Elements.get(index);
+    if (child.Dimension() == 0) {
+      child.SetScalarValue(value);
+    } else {
+      SetValue(index, value);
+    }
+  }
+
+  //if this RDA is a lazily parsed leaf whose value hasn't been read
+  private boolean IsSourceValue() {
+    return (
+      IsSourceBranch() &&
+      _scalarValue == null &&
+      _sourceLevel == _source.Delimiters.length
+    );
+  }
+
+  //if this RDA's content is (still) the parsed content of its source section
+  private boolean IsSourceBranch() {
+    return _source != null;
+  }
+
+  //the lazily parsed source section of this (unmodified) RDA, for reading it directly (see RdaObjectReader), null if there isn't one
+  LazySource Source() {
+    return _source;
+  }
+
+  long SourceStart() {
+    return _sourceStart;
+  }
+
+  long SourceEnd() {
+    return _sourceEnd;
+  }
+
+  int SourceLevel() {
+    return _sourceLevel;
+  }
+
+  //lazy parsing: splits the source section into the child Elements' sections, if they haven't been indexed
+  private void IndexElements() {
+    if (
+      !IsSourceBranch() ||
+      !Elements.isEmpty() ||
+      _sourceLevel == _source.Delimiters.length
+    ) {
+      return;
+    }
+
+    LazySource source = _source;
+    char delimiter = source.Delimiters[_sourceLevel];
+    char escapeChar = source.EscapeChar;
+    long sectionStart = _sourceStart;
+    boolean escaping = false;
+    for (long i = _sourceStart; i < _sourceEnd; i++) {
+      char currChar = source.CharAt(i);
+      if (currChar == escapeChar) {
+        escaping = !escaping;
+        continue;
+      } else if (!escaping && currChar == delimiter) {
+        Elements.add(
+          new Rda(this, _source, sectionStart, i, _sourceLevel + 1)
+        );
+        sectionStart = i + 1;
+      }
+      escaping = false;
+    }
+
+    //the last section is dropped if it's empty (i.e. after a trailing delimiter), unless it's the only section
+    if (sectionStart < _sourceEnd || Elements.isEmpty()) {
+      Elements.add(
+        new Rda(this, _source, sectionStart, _sourceEnd, _sourceLevel + 1)
+      );
+    }
+  }
+
+  //the left-most leaf value of the source section, i.e. the chars before the first delimiter of this or a lower level
+  private String FirstSourceValue() {
+    if (_sourceLevel == _source.Delimiters.length) {
+      return ScalarValue();
+    }
+
+    RdaEncoding.DelimiterTable delimiters = _source.Table;
+    long valueEnd = _sourceStart;
+    boolean escaping = false;
+    for (; valueEnd < _sourceEnd; valueEnd++) {
+      char currChar = _source.CharAt(valueEnd);
+      if (currChar == _source.EscapeChar) {
+        escaping = !escaping;
+        continue;
+      } else if (!escaping && delimiters.Level(currChar) > _sourceLevel) {
+        break;
+      }
+      escaping = false;
+    }
+
+    return _source.Value(_sourceStart, valueEnd);
+  }
+
+  //this RDA (and its parents) will be modified and no longer represent their source sections
+  private void DetachSource() {
+    for (
+      Rda rda = this;
+      rda != null && rda.IsSourceBranch();
+      rda = rda.Parent
+    ) {
+      rda.IndexElements();
+      rda.ScalarValue();
+      rda._source = null;
+    }
+  }
+
+  //an unmodified source section can be output as-is (in a v1 payload) if encoding the parsed content would produce the same chars,
+  //that is, the section is v1-formatted, has the same delimiters as the current encoding, has no trailing delimiters, and
+  //only the escape-char and the delimiters-in-use are escaped in the section's values
+  private boolean IsVerbatimSource(
+    RdaEncoding.DelimiterTable delimitersInUse
+  ) {
+    if (!IsSourceBranch() || _source.V2Formatted) {
+      return false;
+    }
+
+    char[] sourceDelimiters = _source.Delimiters;
+    char[] delimiters = GlobalEncoding().Delimiters;
+    int level = Level(), depth = sourceDelimiters.length - _sourceLevel;
+    if (
+      EscapeChar() != _source.EscapeChar || level + depth > delimiters.length
+    ) {
+      return false;
+    }
+    for (int d = 0; d < depth; d++) {
+      if (delimiters[level + d] != sourceDelimiters[_sourceLevel + d]) {
+        return false;
+      }
+    }
+
+    LazySource source = _source;
+    char escapeChar = source.EscapeChar;
+    int lastDelimiterDepth = 0; //the depth of the section-delimiter just passed, 0 if the last char is a value char
+    for (long i = _sourceStart; i < _sourceEnd; i++) {
+      char currChar = source.CharAt(i);
+      if (currChar == escapeChar) {
+        if (i + 1 == _sourceEnd) {
+          return false;
+        }
+        char escapedChar = source.CharAt(++i);
+        if (
+          escapedChar != escapeChar &&
+          !(
+            source.Table.Contains(escapedChar) &&
+            delimitersInUse.Contains(escapedChar)
+          )
+        ) {
+          return false; //the escaping won't be reproduced
+        }
+        lastDelimiterDepth = 0;
+        continue;
+      }
+
+      int sectionDepth = source.Table.Level(currChar) - _sourceLevel;
+      if (sectionDepth > 0) {
+        if (lastDelimiterDepth > sectionDepth) {
+          return false; //trailing delimiter, the empty section is dropped
+        }
+        lastDelimiterDepth = sectionDepth;
+      } else if (delimitersInUse.Contains(currChar)) {
+        return false; //the char would be escaped
+      } else {
+        lastDelimiterDepth = 0;
+      }
+    }
+
+    return lastDelimiterDepth == 0;
+  }
+
   private void EnsureArrayLength(int index) {
     //1. turns a "leaf" node to a "composite" node - that is, a node that have Elements that can be indexed.
     //if (Elements.Count == 0)
@@ -668,6 +1870,10 @@ public class Rda implements IRda {
     //2. extend the Elements elements if over-indexing is required
     int diff = index - Elements.size() + 1;
 
+    if (diff > 0) {
+      ChildDimensionIncreased(0);
+      ContentChanged();
+    }
     while (diff > 0) {
       var dummy = new Rda(this);/*dummy*/
       Elements.add(dummy);
@@ -675,91 +1881,95 @@ public class Rda implements IRda {
     }
   }
 
-  //helper - splits a (parent's) payload String  into child-content sections, implements the escaping logic
-  private List<String> ParseElementsContentSections(String parentPayLoad) {
-    List<String> result = new ArrayList();
-    if (parentPayLoad == null || parentPayLoad.equals("")) {
-      result.add(parentPayLoad);
-      return result;
+  //sets this RDA as a child of the new parent, and updates the cached level and encoding in this branch (if they're changed)
+  private void AttachTo(Rda parent) {
+    int oldLevel = Level();
+    RdaEncoding oldEncoding = GlobalEncoding();
+    Parent = parent;
+    _level = parent.Level() + 1;
+    _globalEncoding = parent.GlobalEncoding();
+    if (_level != oldLevel || _globalEncoding != oldEncoding) {
+      for (Rda child : Elements) {
+        child.AttachTo(this);
+      }
     }
+  }
 
-    boolean escaping = false;
-    int childSectionStartIndex = 0;
-    char[] valueCharArray = parentPayLoad.toCharArray();
+  //a child of the given dimension is added, or a child's dimension is increased
+  private void ChildDimensionIncreased(int childDimension) {
     for (
-      int currCharIndex = childSectionStartIndex;
-      currCharIndex < valueCharArray.length;
-      currCharIndex++
+      Rda rda = this;
+      rda != null && rda._dimension >= 0 && rda._dimension <= childDimension;
+      rda = rda.Parent
     ) {
-      char currChar = valueCharArray[currCharIndex];
-      if (currChar == EscapeChar()) {
-        escaping = !escaping; //note it flips when escape-char is hit again
-        continue;
-      } else if (!escaping && currChar == ChildDelimiter()) {
-        int sectionLength = currCharIndex - childSectionStartIndex;
-        String childPayload = new String(
-          valueCharArray,
-          childSectionStartIndex,
-          sectionLength
-        );
-        result.add(childPayload);
+      rda._dimension = childDimension + 1;
+      childDimension = rda._dimension;
+    }
+  }
 
-        childSectionStartIndex = currCharIndex + 1; //next section start position
-      }
-      escaping = false;
+  //a child is removed, or a child's dimension is decreased - the dimensions up the tree are re-calculated on the next use
+  private void ChildDimensionDecreased() {
+    for (Rda rda = this; rda != null && rda._dimension >= 0; rda = rda.Parent) {
+      rda._dimension = -1;
     }
+  }
 
-    //get the last token, that is, all chars after the last-encountered separator-char
-    if (childSectionStartIndex < valueCharArray.length) {
-      String lastSectionValue = new String(
-        valueCharArray,
-        childSectionStartIndex,
-        valueCharArray.length - childSectionStartIndex
-      );
-      result.add(lastSectionValue);
+  //resets the cached content hashes up the tree, after this RDA's content is changed. A branch's hash is only calculated with
+  //its children's hashes, so the reset can stop at an RDA that doesn't have a hash.
+  private void ContentChanged() {
+    for (Rda rda = this; rda != null && rda._contentHash != 0; rda = rda.Parent) {
+      rda._contentHash = 0;
     }
+  }
 
-    return result;
+  //updates the cached dimensions up the tree, after this RDA's dimension is changed
+  private void DimensionChanged(int oldDimension) {
+    if (Parent == null || _dimension == oldDimension) {
+      return;
+    } else if (oldDimension >= 0 && _dimension > oldDimension) {
+      Parent.ChildDimensionIncreased(_dimension);
+    } else {
+      Parent.ChildDimensionDecreased();
+    }
   }
 
   /* "Escaping" Definition: to remove any "special meaning" of the next following char, ie. keeps its original meaning. */
 
   //helper: used for parsing a section-value, that may conatins delimiters chars and/or escape char, from an encoded RDA String
-  //returns the actual value that needs to be stored
-  private static String Escape(
+  //writes the actual value that needs to be stored
+  static void WriteEscaped(
+    Appendable output,
     String elementValue,
-    char[] delimitersInUse,
+    RdaEncoding.DelimiterTable delimitersInUse,
     char escapeChar,
     boolean applyFormatting
-  ) {
+  ) throws IOException {
     if (elementValue == null) {
-      return elementValue;
+      return;
     }
 
-    StringBuilder escaped = new StringBuilder();
-    for (char c : elementValue.toCharArray()) {
+    //for v2-formatting, add double-quotes around the content
+    if (applyFormatting) {
+      output.append(RdaEncoding.DOUBLE_QUOTE);
+    }
+    //the chars between the ones that need escaping are appended as a run, a value without such chars is appended as-is
+    int runStart = 0;
+    for (int i = 0; i < elementValue.length(); i++) {
+      char c = elementValue.charAt(i);
       //insert escape char if required
-      if (escapeChar == c) {
-        escaped.append(escapeChar);
-      } else {
-        for (char delimiter : delimitersInUse) {
-          if (delimiter == c) {
-            escaped.append(escapeChar);
-            break;
-          }
-        }
+      if (escapeChar == c || delimitersInUse.Contains(c)) {
+        output.append(elementValue, runStart, i).append(escapeChar);
+        runStart = i;
       }
-
-      escaped.append(c);
     }
-
-    //for v2-formatting, add double-quotes around the content
+    if (runStart == 0) {
+      output.append(elementValue);
+    } else {
+      output.append(elementValue, runStart, elementValue.length());
+    }
     if (applyFormatting) {
-      escaped.insert(0, RdaEncoding.DOUBLE_QUOTE);
-      escaped.append(RdaEncoding.DOUBLE_QUOTE);
+      output.append(RdaEncoding.DOUBLE_QUOTE);
     }
-
-    return escaped.toString();
   }
 
   public static class RdaEncoding {
@@ -813,6 +2023,7 @@ public class Rda implements IRda {
     public static final char DOUBLE_QUOTE = '"';
     public char[] Delimiters = new char[] {}; // (char[])DEFAULT_DELIMITER_CHARS.Clone();
     char EscapeChar = DEFAULT_ESCAPE_CHAR;
+    private DelimiterTable _delimiterTable;
 
     protected RdaEncoding(char[] customDelimiters, char escapeChar) { //, bool v2Formatted)
       Delimiters = customDelimiters;
@@ -862,5 +2073,473 @@ public class Rda implements IRda {
     }
 
     public RdaEncoding() {}
+
+    //the lookup table of the current Delimiters, it's re-built when the Delimiters are replaced (e.g. extended)
+    DelimiterTable GetDelimiterTable() {
+      DelimiterTable delimiterTable = _delimiterTable;
+      if (delimiterTable == null || delimiterTable.Delimiters != Delimiters) {
+        delimiterTable = new DelimiterTable(Delimiters);
+        _delimiterTable = delimiterTable;
+      }
+      return delimiterTable;
+    }
+
+    //classifies a char by the (1-based) level of the delimiter that it is, from a table of the ASCII chars (where the delimiters
+    //normally are) and the list of the other delimiters (usually empty), so the cost doesn't grow with the number of levels
+    static final class DelimiterTable {
+
+      final char[] Delimiters;
+      private final int[] _asciiLevels = new int[128];
+      private final char[] _otherDelimiters;
+      private final int[] _otherLevels;
+
+      DelimiterTable(char[] delimiters) {
+        Delimiters = delimiters;
+        int otherCount = 0;
+        for (char delimiter : delimiters) {
+          if (delimiter >= 128) {
+            otherCount++;
+          }
+        }
+        _otherDelimiters = new char[otherCount];
+        _otherLevels = new int[otherCount];
+
+        otherCount = 0;
+        for (int i = 0; i < delimiters.length; i++) {
+          char delimiter = delimiters[i];
+          if (delimiter < 128) {
+            if (_asciiLevels[delimiter] == 0) {
+              _asciiLevels[delimiter] = i + 1;
+            }
+          } else {
+            _otherDelimiters[otherCount] = delimiter;
+            _otherLevels[otherCount++] = i + 1;
+          }
+        }
+      }
+
+      //the (1-based) level of the delimiter char, 0 if it isn't a delimiter
+      int Level(char c) {
+        if (c < 128) {
+          return _asciiLevels[c];
+        }
+        for (int i = 0; i < _otherDelimiters.length; i++) {
+          if (_otherDelimiters[i] == c) {
+            return _otherLevels[i];
+          }
+        }
+        return 0;
+      }
+
+      boolean Contains(char c) {
+        return Level(c) > 0;
+      }
+    }
+  }
+
+  //the chars of a lazily parsed RDA-string, addressed by their offsets, with the encoding (and formatting) that the sections are parsed with
+  abstract static class LazySource {
+
+    //the powers of 10 that are exact doubles
+    private static final double[] EXACT_POWERS_OF_TEN = {
+      1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+      1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22,
+    };
+
+    final char[] Delimiters;
+    final RdaEncoding.DelimiterTable Table;
+    final char EscapeChar;
+    final boolean V2Formatted;
+
+    LazySource(RdaEncoding encoding, boolean v2Formatted) {
+      Delimiters = encoding.Delimiters.clone(); //the encoding's delimiters can be extended later
+      Table = new RdaEncoding.DelimiterTable(Delimiters);
+      EscapeChar = encoding.EscapeChar;
+      V2Formatted = v2Formatted;
+    }
+
+    abstract char CharAt(long index);
+
+    //the un-escaped value of the section [start, end)
+    abstract String Value(long start, long end);
+
+    //appends the section [start, end) as-is
+    abstract void WriteTo(Appendable output, long start, long end)
+      throws IOException;
+
+    //the value of the section [start, end) as a long, a (v1) value of a sign and up to 18 digits is parsed from the chars
+    //directly, otherwise the un-escaped value is parsed by Long.parseLong()
+    long LongValue(long start, long end) {
+      long i = start;
+      boolean negative = false;
+      if (!V2Formatted && i < end && (CharAt(i) == '-' || CharAt(i) == '+')) {
+        negative = CharAt(i++) == '-';
+      }
+      long value = 0;
+      int digits = 0;
+      for (; !V2Formatted && i < end && digits <= 18; i++, digits++) {
+        char currChar = CharAt(i);
+        if (currChar < '0' || currChar > '9') {
+          break;
+        }
+        value = value * 10 + (currChar - '0');
+      }
+      if (!V2Formatted && i == end && digits > 0 && digits <= 18) {
+        return negative ? -value : value;
+      }
+      return Long.parseLong(Value(start, end));
+    }
+
+    //the value of the section [start, end) as a double - a (v1) decimal value of up to 15 significant digits and an exponent
+    //of up to 22 is a long times (or divided by) a power of 10 that are both exact doubles, so it's computed from the chars
+    //directly with a single (correctly rounded) operation, otherwise the un-escaped value is parsed by Double.parseDouble()
+    double DoubleValue(long start, long end) {
+      long i = start;
+      boolean negative = false;
+      if (!V2Formatted && i < end && (CharAt(i) == '-' || CharAt(i) == '+')) {
+        negative = CharAt(i++) == '-';
+      }
+      long mantissa = 0;
+      int digits = 0, exponent = 0;
+      boolean hasDigits = false, fraction = false;
+      for (; !V2Formatted && i < end && digits <= 15; i++) {
+        char currChar = CharAt(i);
+        if (currChar >= '0' && currChar <= '9') {
+          hasDigits = true;
+          if (mantissa > 0 || currChar != '0') {
+            mantissa = mantissa * 10 + (currChar - '0');
+            digits++;
+          }
+          if (fraction) {
+            exponent--;
+          }
+        } else if (currChar == '.' && !fraction) {
+          fraction = true;
+        } else {
+          break;
+        }
+      }
+      boolean exponentDigits = true;
+      if (i < end && hasDigits && (CharAt(i) == 'e' || CharAt(i) == 'E')) {
+        boolean negativeExponent = false;
+        if (++i < end && (CharAt(i) == '-' || CharAt(i) == '+')) {
+          negativeExponent = CharAt(i++) == '-';
+        }
+        long exponentStart = i;
+        int exponentValue = 0;
+        for (; i < end && i - exponentStart < 3; i++) {
+          char currChar = CharAt(i);
+          if (currChar < '0' || currChar > '9') {
+            break;
+          }
+          exponentValue = exponentValue * 10 + (currChar - '0');
+        }
+        exponentDigits = i > exponentStart;
+        exponent += negativeExponent ? -exponentValue : exponentValue;
+      }
+      if (
+        !V2Formatted &&
+        i == end &&
+        hasDigits &&
+        exponentDigits &&
+        digits <= 15 &&
+        Math.abs(exponent) < EXACT_POWERS_OF_TEN.length
+      ) {
+        double value = exponent >= 0
+          ? mantissa * EXACT_POWERS_OF_TEN[exponent]
+          : mantissa / EXACT_POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+      }
+      return Double.parseDouble(Value(start, end));
+    }
+
+    //if the value of the section [start, end) is "true" (ignoring case), the chars of a v1 value are compared directly
+    //(the escape-char is never removed before a letter)
+    boolean BooleanValue(long start, long end) {
+      if (V2Formatted) {
+        return Boolean.parseBoolean(Value(start, end));
+      } else if (end - start != 4) {
+        return false;
+      }
+      for (int i = 0; i < 4; i++) {
+        if (Character.toLowerCase(CharAt(start + i)) != "true".charAt(i)) {
+          return false;
+        }
+      }
+      return true;
+    }
+  }
+
+  private static class CharArraySource extends LazySource {
+
+    final char[] Chars;
+
+    CharArraySource(char[] chars, RdaEncoding encoding, boolean v2Formatted) {
+      super(encoding, v2Formatted);
+      Chars = chars;
+    }
+
+    char CharAt(long index) {
+      return Chars[(int) index];
+    }
+
+    String Value(long start, long end) {
+      return UnEscape(
+        Chars,
+        (int) start,
+        (int) end,
+        Table,
+        EscapeChar,
+        V2Formatted
+      );
+    }
+
+    void WriteTo(Appendable output, long start, long end) throws IOException {
+      WriteChars(output, Chars, (int) start, (int) end);
+    }
+  }
+
+  //the bytes of an RDA-string (e.g. a memory-mapped file), in segments so more than 2GB can be addressed. The charset is ASCII-compatible and the
+  //encoding chars are ASCII, so a byte that matches a delimiter or the escape-char is never part of a multi-byte (e.g. UTF-8) char, and the
+  //sections are indexed by scanning the bytes. The bytes of a section are only decoded when its value is read.
+  private static class ByteSource extends LazySource {
+
+    static final int SEGMENT_BITS = 30;
+    static final int SEGMENT_SIZE = 1 << SEGMENT_BITS;
+    static final int WRITE_CHUNK_SIZE = 1 << 16;
+
+    final ByteBuffer[] Segments;
+    final Charset SourceCharset;
+
+    ByteSource(
+      ByteBuffer[] segments,
+      Charset charset,
+      RdaEncoding encoding,
+      boolean v2Formatted
+    ) {
+      super(encoding, v2Formatted);
+      Segments = segments;
+      SourceCharset = charset;
+    }
+
+    //a non-ASCII byte is returned as a char in 0x80-0xFF, which is never an encoding char
+    char CharAt(long index) {
+      return (char) (
+        Segments[(int) (index >>> SEGMENT_BITS)].get(
+            (int) (index & (SEGMENT_SIZE - 1))
+          ) &
+        0xFF
+      );
+    }
+
+    String Value(long start, long end) {
+      return UnEscape(
+        Decode(start, end),
+        Table,
+        EscapeChar,
+        V2Formatted
+      );
+    }
+
+    void WriteTo(Appendable output, long start, long end) throws IOException {
+      if (
+        output instanceof Utf8Writer &&
+        (
+          SourceCharset.equals(StandardCharsets.UTF_8) ||
+          SourceCharset.equals(StandardCharsets.US_ASCII)
+        )
+      ) {
+        //the bytes are already UTF-8 encoded
+        ((Utf8Writer) output).flushBuffer();
+        OutputStream stream = ((Utf8Writer) output).Output;
+        while (start < end) {
+          int count = (int) Math.min(end - start, WRITE_CHUNK_SIZE);
+          stream.write(Bytes(start, start + count));
+          start += count;
+        }
+        return;
+      }
+
+      while (start < end) {
+        long chunkEnd = Math.min(end, start + WRITE_CHUNK_SIZE);
+        //not to split a UTF-8 multi-byte char between the chunks
+        while (
+          chunkEnd < end &&
+          SourceCharset.equals(StandardCharsets.UTF_8) &&
+          (CharAt(chunkEnd) & 0xC0) == 0x80
+        ) {
+          chunkEnd--;
+        }
+        output.append(Decode(start, chunkEnd));
+        start = chunkEnd;
+      }
+    }
+
+    private String Decode(long start, long end) {
+      return new String(Bytes(start, end), SourceCharset);
+    }
+
+    private byte[] Bytes(long start, long end) {
+      byte[] bytes = new byte[(int) (end - start)];
+      for (int copied = 0; copied < bytes.length;) {
+        long index = start + copied;
+        ByteBuffer segment = Segments[(int) (index >>> SEGMENT_BITS)].duplicate();
+        segment.position((int) (index & (SEGMENT_SIZE - 1)));
+        int count = Math.min(bytes.length - copied, segment.remaining());
+        segment.get(bytes, copied, count);
+        copied += count;
+      }
+      return bytes;
+    }
+
+    //the leading bytes, each as a char
+    static char[] ByteChars(ByteBuffer[] segments, int length) {
+      char[] chars = new char[length];
+      for (int i = 0; i < length; i++) {
+        chars[i] = (char) (segments[0].get(i) & 0xFF); //the leading bytes are in the first segment
+      }
+      return chars;
+    }
+
+    //the segments of the bytes between the buffer's position and limit
+    static ByteBuffer[] Split(ByteBuffer bytes) {
+      int size = bytes.remaining();
+      ByteBuffer[] segments = new ByteBuffer[
+        (int) (((long) size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)
+      ];
+      for (int i = 0; i < segments.length; i++) {
+        ByteBuffer segment = bytes.duplicate();
+        segment.position(bytes.position() + (i << SEGMENT_BITS));
+        segment.limit(
+          segment.position() + Math.min(SEGMENT_SIZE, size - (i << SEGMENT_BITS))
+        );
+        segments[i] = segment.slice();
+      }
+      return segments;
+    }
+
+    static ByteBuffer[] Map(FileChannel channel) throws IOException {
+      long size = channel.size();
+      ByteBuffer[] segments = new ByteBuffer[
+        (int) ((size + SEGMENT_SIZE - 1) >>> SEGMENT_BITS)
+      ];
+      for (int i = 0; i < segments.length; i++) {
+        long position = (long) i << SEGMENT_BITS;
+        segments[i] =
+          channel.map(
+            FileChannel.MapMode.READ_ONLY,
+            position,
+            Math.min(SEGMENT_SIZE, size - position)
+          );
+      }
+      return segments;
+    }
+  }
+
+  //encodes the written chars straight into UTF-8 bytes in the output stream, and lets an unmodified section of a UTF-8
+  //source be copied to the stream as its original bytes
+  private static class Utf8Writer extends Writer {
+
+    final OutputStream Output;
+    private final byte[] _buffer = new byte[8192];
+    private int _count;
+    private char _highSurrogate;
+
+    Utf8Writer(OutputStream output) {
+      Output = output;
+    }
+
+    @Override
+    public void write(int c) throws IOException {
+      if (_count + 4 > _buffer.length) {
+        flushBuffer();
+      }
+
+      char ch = (char) c;
+      if (_highSurrogate != 0) {
+        char high = _highSurrogate;
+        _highSurrogate = 0;
+        if (Character.isLowSurrogate(ch)) {
+          int codePoint = Character.toCodePoint(high, ch);
+          _buffer[_count++] = (byte) (0xF0 | (codePoint >> 18));
+          _buffer[_count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+          _buffer[_count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+          _buffer[_count++] = (byte) (0x80 | (codePoint & 0x3F));
+          return;
+        }
+        _buffer[_count++] = '?'; //an unpaired surrogate, as String.getBytes() replaces it
+      }
+
+      if (ch < 0x80) {
+        _buffer[_count++] = (byte) ch;
+      } else if (ch < 0x800) {
+        _buffer[_count++] = (byte) (0xC0 | (ch >> 6));
+        _buffer[_count++] = (byte) (0x80 | (ch & 0x3F));
+      } else if (Character.isHighSurrogate(ch)) {
+        _highSurrogate = ch;
+      } else if (Character.isLowSurrogate(ch)) {
+        _buffer[_count++] = '?';
+      } else {
+        _buffer[_count++] = (byte) (0xE0 | (ch >> 12));
+        _buffer[_count++] = (byte) (0x80 | ((ch >> 6) & 0x3F));
+        _buffer[_count++] = (byte) (0x80 | (ch & 0x3F));
+      }
+    }
+
+    @Override
+    public void write(char[] chars, int offset, int length)
+      throws IOException {
+      for (int i = offset; i < offset + length; i++) {
+        write(chars[i]);
+      }
+    }
+
+    @Override
+    public void write(String str, int offset, int length) throws IOException {
+      for (int i = offset; i < offset + length; i++) {
+        write(str.charAt(i));
+      }
+    }
+
+    @Override
+    public Writer append(CharSequence csq) throws IOException {
+      return append(csq, 0, csq.length());
+    }
+
+    @Override
+    public Writer append(CharSequence csq, int start, int end)
+      throws IOException {
+      for (int i = start; i < end; i++) {
+        write(csq.charAt(i));
+      }
+      return this;
+    }
+
+    @Override
+    public Writer append(char c) throws IOException {
+      write(c);
+      return this;
+    }
+
+    //writes the buffered bytes to the output stream (a pending high surrogate stays buffered)
+    void flushBuffer() throws IOException {
+      Output.write(_buffer, 0, _count);
+      _count = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      if (_highSurrogate != 0) {
+        _highSurrogate = 0;
+        _buffer[_count++] = '?';
+      }
+      flushBuffer();
+      Output.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+      flush(); //the output stream is owned by the caller
+    }
   }
 }
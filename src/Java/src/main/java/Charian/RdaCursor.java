@@ -0,0 +1,122 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.Arrays;
+
+/*
+ * A reusable position in an Rda tree, for iterating over the elements (e.g. the rows and the columns of a table) without
+ * building an address array for each element or walking down from the root for each read.
+ *
+ * The cursor only moves to existing Elements, it never creates dummies. It holds no copy of the tree, so the tree must not be
+ * restructured while the cursor is used (changing values is fine). Moving the cursor doesn't allocate, except when it goes
+ * deeper than it has been before.
+ *
+ * For example, summing the column-2 values of a table -
+ *
+ *   RdaCursor cursor = new RdaCursor(table);
+ *   for (boolean more = cursor.Down(0); more; more = cursor.Next()) {
+ *     if (cursor.Down(2)) {
+ *       sum += cursor.GetLong();
+ *       cursor.Up();
+ *     }
+ *   }
+ */
+public final class RdaCursor {
+
+  private Rda _current;
+  private int[] _indexes = new int[8]; //the index of the current element (and its parents) in its parent's Elements
+  private int _depth; //the number of levels below the root
+
+  public RdaCursor(Rda root) {
+    Reset(root);
+  }
+
+  //moves the cursor to the root of a (new) tree
+  public RdaCursor Reset(Rda root) {
+    _current = root;
+    _depth = 0;
+    return this;
+  }
+
+  public Rda Current() {
+    return _current;
+  }
+
+  public int Depth() {
+    return _depth;
+  }
+
+  //the current element's index in its parent's Elements, -1 at the root
+  public int Index() {
+    return _depth == 0 ? -1 : _indexes[_depth - 1];
+  }
+
+  public int Length() {
+    return _current.Length();
+  }
+
+  //moves to the indexed child, returns false (and stays) if there isn't such a child
+  public boolean Down(int index) {
+    if (index < 0 || index >= _current.Length()) {
+      return false;
+    }
+    if (_depth == _indexes.length) {
+      _indexes = Arrays.copyOf(_indexes, _depth * 2);
+    }
+    _indexes[_depth++] = index;
+    _current = _current.Elements.get(index);
+    return true;
+  }
+
+  //moves to the parent, returns false at the root
+  public boolean Up() {
+    if (_depth == 0) {
+      return false;
+    }
+    _depth--;
+    _current = _current.Parent;
+    return true;
+  }
+
+  //moves to the next sibling, returns false (and stays) if the current element is the last one (or the root)
+  public boolean Next() {
+    if (_depth == 0) {
+      return false;
+    }
+    int index = _indexes[_depth - 1] + 1;
+    Rda parent = _current.Parent;
+    if (index >= parent.Elements.size()) {
+      return false;
+    }
+    _indexes[_depth - 1] = index;
+    _current = parent.Elements.get(index);
+    return true;
+  }
+
+  /**
+   * The current element's (left-most leaf) value, as Rda's GetScalarValue(), GetInt() etc
+   */
+
+  public String GetValue() {
+    return _current.GetScalarValue();
+  }
+
+  public int GetInt() {
+    return _current.IntValue();
+  }
+
+  public long GetLong() {
+    return _current.LongValue();
+  }
+
+  public double GetDouble() {
+    return _current.DoubleValue();
+  }
+
+  public boolean GetBoolean() {
+    return _current.BooleanValue();
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+/*
+ * The structural diff of two RDAs (see Rda.Diff()), and applying it as a patch (see Rda.ApplyPatch()).
+ *
+ * A patch is an RDA, so it can be sent as an RDA-string - each of its elements is an operation, whose elements are the
+ * operation's kind, its value, and the index-address of the changed RDA -
+ *
+ *   V;value;2;0     sets the value of the RDA at [2,0]
+ *   D;;3;1          sets the RDA at [3,1] to a dummy (i.e. a null value)
+ *   T;length;1      removes the elements of the RDA at [1] from the length
+ *
+ * An operation with no address changes the root. The diff walks both trees together, a pair of branches that have the same
+ * (cached) hash and the same content is skipped, and the changes are made down to the leaves - so the patched RDA has the
+ * to-RDA's exact shape (e.g. its ragged dimensions and its trailing empty values), which an RDA-string of a changed branch
+ * wouldn't keep. Setting a leaf below a leaf pushes the leaf's value down, as GetRda() does. NB, as in ContentEqual(), a
+ * dummy and an empty value are the same content, so a dummy that's an empty value in the to-RDA (or vice versa) isn't changed.
+ */
+final class RdaDiff {
+
+  static final String SET_VALUE = "V";
+  static final String SET_DUMMY = "D";
+  static final String TRUNCATE = "T";
+
+  private RdaDiff() {}
+
+  static Rda Diff(Rda from, Rda to) throws Exception {
+    Rda patch = new Rda();
+    int[] address = new int[to.Dimension()]; //the walk only goes down the to-RDA's branches
+    DiffBranch(from, to, address, 0, patch);
+    return patch;
+  }
+
+  static void Apply(Rda target, Rda patch) throws Exception {
+    for (int i = 0; i < patch.Length(); i++) {
+      Rda operation = patch.GetRda(i);
+      String kind = operation.PeekValue(0);
+      String value = operation.PeekValue(1);
+      int[] address = new int[Math.max(operation.Length() - 2, 0)];
+      for (int k = 0; k < address.length; k++) {
+        address[k] = Integer.parseInt(operation.PeekValue(k + 2));
+      }
+
+      switch (kind) {
+        case SET_VALUE:
+          target.SetValue(address, value);
+          break;
+        case SET_DUMMY:
+          target.GetRda(address).SetScalarValue(null);
+          break;
+        case TRUNCATE:
+          target.GetRda(address).RemoveElements(Integer.parseInt(value));
+          break;
+        default:
+          throw new IllegalArgumentException(
+            String.format("Unknown patch operation '%s' at index %d.", kind, i)
+          );
+      }
+    }
+  }
+
+  /* helpers */
+
+  //adds the operations that change the from-branch into the to-branch at the address[0, depth). The from-branch is null
+  //if there isn't one, i.e. the whole to-branch is added.
+  private static void DiffBranch(
+    Rda from,
+    Rda to,
+    int[] address,
+    int depth,
+    Rda patch
+  ) throws Exception {
+    if (
+      from != null && from.hashCode() == to.hashCode() && from.ContentEqual(to)
+    ) {
+      return; //the hashes are calculated once, and cached for the sub-branches
+    }
+
+    int toLength = to.Length();
+    if (to.Dimension() == 0) {
+      if (to.IsDummy()) {
+        AddOperation(patch, SET_DUMMY, "", address, depth);
+      } else {
+        AddOperation(patch, SET_VALUE, to.GetScalarValue(), address, depth);
+      }
+      return;
+    }
+
+    //a leaf from-branch becomes composite by its first element's operations, as its value is pushed down (and replaced)
+    int fromLength = from == null || from.Dimension() == 0 ? 0 : from.Length();
+    for (int i = 0; i < toLength; i++) {
+      address[depth] = i;
+      DiffBranch(
+        i < fromLength ? from.Elements.get(i) : null,
+        to.Elements.get(i),
+        address,
+        depth + 1,
+        patch
+      );
+    }
+    if (toLength < fromLength) {
+      AddOperation(patch, TRUNCATE, Integer.toString(toLength), address, depth);
+    }
+  }
+
+  private static void AddOperation(
+    Rda patch,
+    String kind,
+    String value,
+    int[] address,
+    int depth
+  ) throws Exception {
+    Rda operation = new Rda();
+    operation.AddValue(kind);
+    operation.AddValue(value);
+    for (int i = 0; i < depth; i++) {
+      operation.AddValue(Integer.toString(address[i]));
+    }
+    patch.AddRda(operation);
+  }
+}
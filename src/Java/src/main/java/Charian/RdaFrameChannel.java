@@ -0,0 +1,254 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.ByteChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+
+/*
+ * A framed stream of RDA messages over a (blocking) byte channel, e.g. a SocketChannel. An RDA-string has no length, so
+ * each message is sent as a frame - the length of the message's UTF-8 bytes (a 4-byte big-endian int), then the bytes -
+ *
+ *   RdaFrameChannel frames = new RdaFrameChannel(SocketChannel.open(address));
+ *   frames.Write(request);
+ *   Rda reply = frames.Read();    //null at the end of the stream
+ *
+ * The frames are read into, and written from, direct byte buffers that are kept between the messages, and a read frame is
+ * decoded into a kept char buffer and parsed by a kept RdaParser (see RdaParser), so a connection's steady stream of messages
+ * doesn't allocate beyond the parsed Rda trees (or none, when a target Rda is refilled by Read(Rda)).
+ *
+ * A frame channel isn't thread-safe, it's owned by a connection's thread. The reads and writes are blocking, and there are no
+ * monitor locks (which would pin a virtual thread to its carrier thread), so a connection can be served by a virtual thread
+ * (see RdaFrameServer).
+ */
+public final class RdaFrameChannel implements Closeable {
+
+  static final int LENGTH_PREFIX_SIZE = 4;
+  static final int DEFAULT_MAX_FRAME_LENGTH = 1 << 24;
+  static final int INITIAL_BUFFER_SIZE = 1 << 16;
+  //a buffer that's grown beyond this size (for a very large frame) isn't kept for the next frame
+  static final int MAX_RETAINED_BUFFER_SIZE = 1 << 20;
+
+  private final ByteChannel _channel;
+  private final int _maxFrameLength;
+  private final RdaParser _parser;
+  private final CharsetEncoder _encoder = StandardCharsets.UTF_8.newEncoder();
+  private final CharsetDecoder _decoder = StandardCharsets.UTF_8.newDecoder();
+
+  //the read buffer is in the read mode, i.e. its remaining bytes are received and not yet read (e.g. the next frame)
+  private ByteBuffer _readBuffer = ByteBuffer.allocateDirect(
+    INITIAL_BUFFER_SIZE
+  );
+  private ByteBuffer _writeBuffer = ByteBuffer.allocateDirect(
+    INITIAL_BUFFER_SIZE
+  );
+  private CharBuffer _chars = CharBuffer.allocate(INITIAL_BUFFER_SIZE);
+  private final StringBuilder _rdaString = new StringBuilder();
+
+  public RdaFrameChannel(ByteChannel channel) {
+    this(channel, DEFAULT_MAX_FRAME_LENGTH, null);
+  }
+
+  //a received frame that's longer than the max frame length is rejected (the stream can't be read any further), and the
+  //frame's leaf values are shared via the value-cache if there is one (see RdaValueCache)
+  public RdaFrameChannel(
+    ByteChannel channel,
+    int maxFrameLength,
+    RdaValueCache valueCache
+  ) {
+    _channel = channel;
+    _maxFrameLength = maxFrameLength;
+    _parser = new RdaParser(valueCache);
+    _readBuffer.flip();
+  }
+
+  //the next message, parsed into a new Rda tree, null at the end of the stream
+  public Rda Read() throws IOException {
+    return Read(new Rda());
+  }
+
+  //the next message, parsed into the (root) target (whose Rda objects are re-used, see RdaParser.Parse(String, Rda)),
+  //null at the end of the stream
+  public Rda Read(Rda target) throws IOException {
+    return ReadFrame()
+      ? _parser.Parse(_chars.array(), _chars.limit(), target)
+      : null;
+  }
+
+  //the next message's RDA-string, without parsing it, null at the end of the stream
+  public String ReadString() throws IOException {
+    return ReadFrame() ? _chars.toString() : null;
+  }
+
+  public void Write(Rda rda) throws IOException {
+    _rdaString.setLength(0);
+    rda.WriteTo(_rdaString);
+    WriteFrame(_rdaString);
+    if (_rdaString.capacity() > MAX_RETAINED_BUFFER_SIZE) {
+      _rdaString.setLength(0);
+      _rdaString.trimToSize();
+    }
+  }
+
+  public void WriteString(String rdaString) throws IOException {
+    WriteFrame(rdaString);
+  }
+
+  public void close() throws IOException {
+    _channel.close();
+  }
+
+  /* helpers */
+
+  //reads the next frame and decodes it into the chars, returns false at the end of the stream (between the frames)
+  private boolean ReadFrame() throws IOException {
+    if (!Receive(LENGTH_PREFIX_SIZE)) {
+      return false;
+    }
+    int length = _readBuffer.getInt();
+    if (length < 0 || length > _maxFrameLength) {
+      throw InvalidFrameLength(length);
+    } else if (!Receive(length)) {
+      throw new EOFException("The stream ended in a frame.");
+    }
+
+    //a UTF-8 frame has no more chars than bytes, and the chars of a very large frame aren't kept for the next frame
+    if (
+      _chars.capacity() < length ||
+      (_chars.capacity() > MAX_RETAINED_BUFFER_SIZE &&
+        length <= MAX_RETAINED_BUFFER_SIZE)
+    ) {
+      _chars = CharBuffer.allocate(Math.max(length, INITIAL_BUFFER_SIZE));
+    }
+    _chars.clear();
+    int limit = _readBuffer.limit();
+    _readBuffer.limit(_readBuffer.position() + length);
+    _decoder.reset();
+    CoderResult result = _decoder.decode(_readBuffer, _chars, true);
+    if (!result.isUnderflow()) {
+      result.throwException();
+    }
+    _decoder.flush(_chars);
+    _readBuffer.limit(limit);
+    _chars.flip();
+
+    if (
+      _readBuffer.capacity() > MAX_RETAINED_BUFFER_SIZE &&
+      !_readBuffer.hasRemaining()
+    ) {
+      _readBuffer = ByteBuffer.allocateDirect(INITIAL_BUFFER_SIZE);
+      _readBuffer.flip();
+    }
+    return true;
+  }
+
+  //reads from the channel until the read buffer has the number of bytes, returns false if the stream ended with no bytes
+  //remaining. NB, a frame that's larger than the buffer is read into a larger buffer (a heap buffer for a very large frame)
+  private boolean Receive(int count) throws IOException {
+    if (_readBuffer.remaining() >= count) {
+      return true;
+    }
+
+    if (_readBuffer.capacity() < count) {
+      ByteBuffer buffer = count > MAX_RETAINED_BUFFER_SIZE
+        ? ByteBuffer.allocate(count)
+        : ByteBuffer.allocateDirect(
+          Math.max(count, _readBuffer.capacity() * 2)
+        );
+      buffer.put(_readBuffer);
+      _readBuffer = buffer;
+    } else {
+      _readBuffer.compact();
+    }
+
+    while (_readBuffer.position() < count) {
+      if (_channel.read(_readBuffer) < 0) {
+        _readBuffer.flip();
+        if (_readBuffer.hasRemaining()) {
+          throw new EOFException("The stream ended in a frame.");
+        }
+        return false;
+      }
+    }
+    _readBuffer.flip();
+    return true;
+  }
+
+  //a message that's longer than the max frame length is rejected before it's encoded, as its UTF-8 bytes are no fewer than
+  //its chars, and the buffer of a longer encoding is no larger than the max frame length
+  private void WriteFrame(CharSequence rdaString) throws IOException {
+    if (rdaString.length() > _maxFrameLength) {
+      throw MessageTooLong();
+    }
+    CharBuffer chars = CharBuffer.wrap(rdaString);
+    ByteBuffer buffer = _writeBuffer;
+    while (true) {
+      buffer.clear();
+      buffer.position(LENGTH_PREFIX_SIZE);
+      _encoder.reset();
+      CoderResult result = _encoder.encode(chars, buffer, true);
+      if (result.isUnderflow()) {
+        result = _encoder.flush(buffer);
+      }
+      if (result.isUnderflow()) {
+        break;
+      } else if (!result.isOverflow()) {
+        result.throwException();
+      }
+
+      //a UTF-8 char is up to 3 bytes (a surrogate pair is 4 bytes for 2 chars)
+      int size =
+        LENGTH_PREFIX_SIZE +
+        (int) Math.min(rdaString.length() * 3L, _maxFrameLength);
+      if (buffer.capacity() >= size) {
+        throw MessageTooLong();
+      }
+      buffer = size > MAX_RETAINED_BUFFER_SIZE
+        ? ByteBuffer.allocate(size)
+        : ByteBuffer.allocateDirect(size);
+      if (size <= MAX_RETAINED_BUFFER_SIZE) {
+        _writeBuffer = buffer;
+      }
+      chars.rewind();
+    }
+
+    int length = buffer.position() - LENGTH_PREFIX_SIZE;
+    if (length > _maxFrameLength) {
+      throw MessageTooLong();
+    }
+    buffer.putInt(0, length);
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      _channel.write(buffer);
+    }
+  }
+
+  private IOException MessageTooLong() {
+    return new IOException(
+      String.format(
+        "The message's UTF-8 bytes are longer than the max frame length %d.",
+        _maxFrameLength
+      )
+    );
+  }
+
+  private IOException InvalidFrameLength(int length) {
+    return new IOException(
+      String.format(
+        "Invalid frame length %d, the maximum is %d.",
+        length,
+        _maxFrameLength
+      )
+    );
+  }
+}
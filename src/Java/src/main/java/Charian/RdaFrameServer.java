@@ -0,0 +1,223 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/*
+ * A (sample) server of framed RDA messages (see RdaFrameChannel), where each connection is served by its own thread - a
+ * virtual thread when the Java runtime has them (Java 21 or later), so a large number of mostly idle connections doesn't
+ * need a platform thread each, and a connection's handler is plain blocking code -
+ *
+ *   try (RdaFrameServer server = RdaFrameServer.Start(new InetSocketAddress(port), request -> reply)) {
+ *     ...
+ *   }
+ *
+ * A connection's requests are read in order, each one is parsed (into the connection's re-used Rda tree) and passed to the
+ * handler, and the handler's reply is written back. The request Rda is refilled by the next request, so the handler should
+ * copy what it keeps.
+ *
+ * A connection that fails (e.g. its handler throws, or it sends a malformed frame) is closed, and the failure is passed to
+ * the error handler (which logs it by default). If accepting the connections fails, the server is closed, and the cause is
+ * passed to the error handler and thrown by close().
+ */
+public final class RdaFrameServer implements Closeable {
+
+  //handles a request, and returns the reply to write back (null for no reply)
+  public interface Handler {
+    Rda Handle(Rda request) throws Exception;
+  }
+
+  //is passed the failure of a connection (with the client's address, if it's known), or of accepting the connections
+  //(with no address)
+  public interface ErrorHandler {
+    void Failed(SocketAddress clientAddress, Exception cause);
+  }
+
+  static final long CLOSE_TIMEOUT_MILLIS = 5000;
+  static final ErrorHandler LOG_ERRORS = (clientAddress, cause) ->
+    Logger
+      .getLogger(RdaFrameServer.class.getName())
+      .log(
+        Level.WARNING,
+        clientAddress == null
+          ? "Accepting the connections failed, the server is closed."
+          : "The connection from " + clientAddress + " failed, it's closed.",
+        cause
+      );
+
+  private final ServerSocketChannel _serverChannel;
+  private final Handler _handler;
+  private final ErrorHandler _errorHandler;
+  private final ExecutorService _executor = PerConnectionExecutor();
+  private final Set<SocketChannel> _connections = ConcurrentHashMap.newKeySet();
+  private volatile IOException _acceptFailure;
+
+  private RdaFrameServer(
+    ServerSocketChannel serverChannel,
+    Handler handler,
+    ErrorHandler errorHandler
+  ) {
+    _serverChannel = serverChannel;
+    _handler = handler;
+    _errorHandler = errorHandler;
+  }
+
+  //binds the server to the address (a port 0 is an ephemeral port, see LocalAddress()) and starts accepting connections,
+  //the failures are logged
+  public static RdaFrameServer Start(SocketAddress address, Handler handler)
+    throws IOException {
+    return Start(address, handler, LOG_ERRORS);
+  }
+
+  public static RdaFrameServer Start(
+    SocketAddress address,
+    Handler handler,
+    ErrorHandler errorHandler
+  ) throws IOException {
+    ServerSocketChannel serverChannel = ServerSocketChannel.open();
+    try {
+      serverChannel.bind(address);
+    } catch (IOException e) {
+      serverChannel.close();
+      throw e;
+    }
+    RdaFrameServer server = new RdaFrameServer(
+      serverChannel,
+      handler,
+      errorHandler
+    );
+    server._executor.execute(server::Accept);
+    return server;
+  }
+
+  public InetSocketAddress LocalAddress() throws IOException {
+    return (InetSocketAddress) _serverChannel.getLocalAddress();
+  }
+
+  //false when the server is closed, or accepting the connections has failed (see AcceptFailure())
+  public boolean IsOpen() {
+    return _serverChannel.isOpen();
+  }
+
+  //the cause of the failure of accepting the connections, which has closed the server, null if there isn't one
+  public IOException AcceptFailure() {
+    return _acceptFailure;
+  }
+
+  //stops accepting connections, closes the open connections, and waits (for a bounded time) for their handlers to end -
+  //a handler that's still running is interrupted. Throws the failure of accepting the connections, if there was one
+  public void close() throws IOException {
+    CloseChannels();
+    _executor.shutdown();
+    try {
+      if (
+        !_executor.awaitTermination(CLOSE_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
+      ) {
+        _executor.shutdownNow();
+      }
+    } catch (InterruptedException e) {
+      _executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+
+    IOException acceptFailure = _acceptFailure;
+    if (acceptFailure != null) {
+      throw new IOException(
+        "Accepting the connections failed.",
+        acceptFailure
+      );
+    }
+  }
+
+  /* helpers */
+
+  private void CloseChannels() throws IOException {
+    _serverChannel.close();
+    for (SocketChannel connection : _connections) {
+      connection.close();
+    }
+  }
+
+  private void Accept() {
+    try {
+      while (true) {
+        SocketChannel connection = _serverChannel.accept();
+        _connections.add(connection);
+        try {
+          if (!_serverChannel.isOpen()) {
+            throw new RejectedExecutionException(); //closed before the connection was added, so it's not closed
+          }
+          _executor.execute(() -> Serve(connection));
+        } catch (RejectedExecutionException e) {
+          connection.close(); //the server is closed
+          _connections.remove(connection);
+          return;
+        }
+      }
+    } catch (ClosedChannelException e) {
+      //the server is closed
+    } catch (IOException e) {
+      _acceptFailure = e;
+      try {
+        CloseChannels();
+      } catch (IOException closeFailure) {
+        e.addSuppressed(closeFailure);
+      }
+      _errorHandler.Failed(null, e);
+    }
+  }
+
+  private void Serve(SocketChannel connection) {
+    SocketAddress clientAddress = null;
+    try (RdaFrameChannel frames = new RdaFrameChannel(connection)) {
+      clientAddress = connection.getRemoteAddress();
+      connection.socket().setTcpNoDelay(true);
+      Rda request = new Rda();
+      while (frames.Read(request) != null) {
+        Rda reply = _handler.Handle(request);
+        if (reply != null) {
+          frames.Write(reply);
+        }
+      }
+    } catch (ClosedChannelException e) {
+      //the server is closed
+    } catch (Exception e) {
+      _errorHandler.Failed(clientAddress, e);
+    } finally {
+      _connections.remove(connection);
+    }
+  }
+
+  //a virtual thread per task on Java 21 or later (looked up, as the library is built for Java 11), or else a new (or idle)
+  //platform thread per task
+  static ExecutorService PerConnectionExecutor() {
+    try {
+      return (ExecutorService) Executors.class
+        .getMethod("newVirtualThreadPerTaskExecutor")
+        .invoke(null);
+    } catch (ReflectiveOperationException e) {
+      return Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "RdaFrameServer");
+        thread.setDaemon(true);
+        return thread;
+      });
+    }
+  }
+}
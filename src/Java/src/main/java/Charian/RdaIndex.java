@@ -0,0 +1,43 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/*
+ * Marks a field to be stored at the index in the RDA container of its object. For a class with @RdaIndex fields, the
+ * annotation processor (RdaProcessor) generates a "<ClassName>RdaCodec" class in the same package, with the ToRda() and
+ * FromRda() code that would otherwise be hand-written - so implementing IRda is just delegating to the codec -
+ *
+ *   class Person implements IRda {
+ *     @RdaIndex(0) String FirstName;
+ *     @RdaIndex(1) int Age;
+ *     @RdaIndex(2) Address ResidentialAddress; //an IRda, or a class with @RdaIndex fields
+ *
+ *     public Rda ToRda() { return PersonRdaCodec.ToRda(this); }
+ *     public IRda FromRda(Rda rda) { return PersonRdaCodec.FromRda(this, rda); }
+ *   }
+ *
+ * A field can be a String, a primitive (or its boxed type), an enum, an IRda, or a class with @RdaIndex fields. It can't be
+ * private, static or final. The annotated fields of the super-classes are included.
+ *
+ * The processor isn't in the library jar (so it isn't run by every compilation that has the library on its class path), it's
+ * in the separate "processor" jar, which is added to the annotation-processor path of the code that uses @RdaIndex -
+ *
+ *   dependencies {
+ *     implementation files('rda.jar')
+ *     annotationProcessor files('rda-processor.jar')
+ *   }
+ *
+ * or "javac -processorpath rda-processor.jar". The generated code uses no reflection.
+ */
+@Retention(RetentionPolicy.CLASS) //so the annotated fields of a compiled super-class are found
+@Target(ElementType.FIELD)
+public @interface RdaIndex {
+  int value();
+}
@@ -0,0 +1,251 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/*
+ * Reads the elements of an RDA-string in sequence, straight from the parsed chars (or bytes) - the counterpart of
+ * RdaObjectWriter, e.g. for an object to restore its properties (see IRda.ReadFrom()) in the order they were written -
+ *
+ *   FirstName = reader.ReadValue();    //index 0
+ *   Age = reader.ReadInt();            //index 1
+ *   reader.ReadObject(Address);        //index 2, a child container
+ *
+ * No Rda tree is built: the reader keeps its position in the source, and a value is un-escaped (or a number is parsed) from
+ * the source section when it's read. The elements follow the tree that Rda.Parse() builds from the same RDA-string. As with
+ * Rda.GetValue(), reading a composite element as a value reads its left-most leaf value, reading a leaf element as a child
+ * container reads the leaf as its only element, and reading past the last element of a container reads an empty value.
+ */
+public final class RdaObjectReader {
+
+  private static final int NOT_DELIMITER = Integer.MAX_VALUE;
+  private static final int ANY_LEVEL = NOT_DELIMITER - 1; //for finding a delimiter of any level
+
+  private Rda.LazySource _source;
+  private long _position, _end;
+  private int _level; //the source level of the current container, its elements are separated by the level's delimiter
+  private int _rootLevel;
+  //the start of each open container's first element until it's read (-1 after that, or if the container isn't there), as
+  //the first element of a container is there even if it's empty - only a trailing empty element is dropped, as by the parser
+  private long[] _firstElementStarts = new long[8];
+  private String _scalarValue; //the RDA-string without a header section, which is read as a single value
+  private boolean _scalarValueRead;
+
+  public RdaObjectReader(String rdaString) {
+    Reset(rdaString);
+  }
+
+  //reads the RDA's elements - a lazily parsed (and unmodified) RDA is read from its source, otherwise from its RDA-string
+  public RdaObjectReader(Rda rda) {
+    Reset(rda);
+  }
+
+  public RdaObjectReader Reset(String rdaString) {
+    return Reset(Rda.ParseLazy(rdaString));
+  }
+
+  public RdaObjectReader Reset(Rda rda) {
+    if (rda.Source() == null && rda.Dimension() > 0) {
+      rda = Rda.ParseLazy(rda.ToString());
+    }
+    _source = rda.Source();
+    if (_source == null) {
+      _scalarValue = rda.GetScalarValue();
+      _scalarValueRead = false;
+      _rootLevel = 0;
+      _level = 0;
+    } else {
+      _position = rda.SourceStart();
+      _end = rda.SourceEnd();
+      _rootLevel = rda.SourceLevel();
+      _level = _rootLevel;
+      _firstElementStarts[0] = _position;
+    }
+    return this;
+  }
+
+  //if there is a next element in the current container
+  public boolean HasNext() {
+    if (_source == null) {
+      return !_scalarValueRead;
+    }
+    return (
+      (_position < _end && DelimiterLevel(_position) >= _level) ||
+      _firstElementStarts[_level - _rootLevel] == _position //an empty first (and only) element
+    );
+  }
+
+  //the next element's (left-most leaf) value, "" if there is no next element
+  public String ReadValue() {
+    if (_source == null) {
+      return ReadScalarValue();
+    } else if (!HasNext()) {
+      return "";
+    }
+    long valueEnd = NextDelimiter(_position, ANY_LEVEL);
+    String value = _source.Value(_position, valueEnd);
+    SkipElement(valueEnd);
+    return value;
+  }
+
+  public int ReadInt() {
+    long value = ReadLong();
+    if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+      throw new NumberFormatException(
+        String.format("Value %d is out of the int range.", value)
+      );
+    }
+    return (int) value;
+  }
+
+  //the next element's value parsed as a long, the digits are parsed from the source without making a String
+  public long ReadLong() {
+    if (_source == null || !HasNext()) {
+      return Long.parseLong(ReadValue());
+    }
+    long valueEnd = NextDelimiter(_position, ANY_LEVEL);
+    long value = _source.LongValue(_position, valueEnd);
+    SkipElement(valueEnd);
+    return value;
+  }
+
+  public double ReadDouble() {
+    return Double.parseDouble(ReadValue());
+  }
+
+  public boolean ReadBoolean() {
+    if (_source == null || !HasNext()) {
+      return Boolean.parseBoolean(ReadValue());
+    }
+    long valueEnd = NextDelimiter(_position, ANY_LEVEL);
+    boolean value = _source.BooleanValue(_position, valueEnd);
+    SkipElement(valueEnd);
+    return value;
+  }
+
+  //skips the next element
+  public RdaObjectReader Skip() {
+    if (_source == null) {
+      ReadScalarValue();
+    } else if (HasNext()) {
+      SkipElement(_position);
+    }
+    return this;
+  }
+
+  //makes the next element the current container, whose elements are read until EndChild()
+  public RdaObjectReader BeginChild() {
+    if (_source == null) {
+      _level++;
+      return this;
+    }
+    boolean childExists = HasNext();
+    _firstElementStarts[_level - _rootLevel] = -1;
+    _level++;
+    int depth = _level - _rootLevel;
+    if (depth == _firstElementStarts.length) {
+      _firstElementStarts = Arrays.copyOf(_firstElementStarts, depth * 2);
+    }
+    _firstElementStarts[depth] = childExists ? _position : -1;
+    return this;
+  }
+
+  //skips the rest of the current container's elements, and continues with the parent container's next element
+  public RdaObjectReader EndChild() {
+    if (_level == _rootLevel) {
+      throw new IllegalStateException("There is no child to end.");
+    }
+    _level--;
+    if (_source == null) {
+      _scalarValueRead = true;
+    } else if (_position < _end && DelimiterLevel(_position) >= _level) {
+      SkipElement(_position); //including the parent's delimiter after the child
+    }
+    return this;
+  }
+
+  //restores the object's properties from the next element, returns the object
+  public <T extends IRda> T ReadObject(T obj) {
+    BeginChild();
+    obj.ReadFrom(this);
+    EndChild();
+    return obj;
+  }
+
+  //the rest of the current container's elements as a (lazily parsed) Rda, e.g. for restoring an object by its FromRda()
+  public Rda ReadRemaining() {
+    Rda rda;
+    if (_source == null) {
+      rda = new Rda();
+      rda.SetScalarValue(ReadScalarValue());
+      return rda;
+    }
+
+    long containerEnd = NextDelimiter(_position, _level - 1);
+    StringBuilder rdaString = new StringBuilder();
+    try {
+      if (_level < _source.Delimiters.length) {
+        char[] delimiters = _source.Delimiters;
+        rdaString.append(delimiters, _level, delimiters.length - _level);
+        rdaString.append(_source.EscapeChar).append(delimiters[_level]);
+        _source.WriteTo(rdaString, _position, containerEnd);
+        rda = Rda.ParseLazy(rdaString.toString());
+      } else {
+        rda = new Rda();
+        rda.SetScalarValue(_source.Value(_position, containerEnd)); //a leaf
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by StringBuilder
+    }
+    _position = containerEnd;
+    _firstElementStarts[_level - _rootLevel] = -1;
+    return rda;
+  }
+
+  /* helpers */
+
+  //the value of an RDA-string without a header section is its only element, at any level (as Rda.GetValue())
+  private String ReadScalarValue() {
+    String value = _scalarValueRead ? "" : _scalarValue;
+    _scalarValueRead = true;
+    return value;
+  }
+
+  //the (0-based) level of the delimiter at the position, NOT_DELIMITER if it's not a delimiter
+  private int DelimiterLevel(long position) {
+    int level = _source.Table.Level(_source.CharAt(position));
+    return level == 0 ? NOT_DELIMITER : level - 1;
+  }
+
+  //the position of the next (un-escaped) delimiter of the level or a higher level, or the end
+  private long NextDelimiter(long from, int level) {
+    char escapeChar = _source.EscapeChar;
+    boolean escaping = false;
+    for (long i = from; i < _end; i++) {
+      char currChar = _source.CharAt(i);
+      if (currChar == escapeChar) {
+        escaping = !escaping; //note it flips when escape-char is hit again
+        continue;
+      } else if (!escaping && DelimiterLevel(i) <= level) {
+        return i;
+      }
+      escaping = false;
+    }
+    return _end;
+  }
+
+  //moves past the element that's being read at the position, and its delimiter if the container has a next element
+  private void SkipElement(long from) {
+    _firstElementStarts[_level - _rootLevel] = -1;
+    long elementEnd = NextDelimiter(from, _level);
+    _position =
+      elementEnd < _end && DelimiterLevel(elementEnd) == _level
+        ? elementEnd + 1
+        : elementEnd;
+  }
+}
@@ -0,0 +1,259 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/*
+ * Writes an RDA-string directly from a sequence of values and child containers, without building an Rda tree - e.g. for an
+ * object to stream its properties (see IRda.WriteTo()), as it would store them into its ToRda() container -
+ *
+ *   writer.WriteValue(FirstName);      //index 0
+ *   writer.WriteInt(Age);              //index 1
+ *   writer.WriteObject(Address);       //index 2, a child container
+ *   String rdaString = writer.ToString();
+ *
+ * The result is the RDA-string of the equivalent Rda tree (with the default encoding). As the header section depends on the
+ * depth of the whole tree, the payload is buffered, and the values' chars that turn out to be delimiters-in-use are escaped
+ * when the RDA-string is output. As in Rda, the trailing dummies (null values and empty children) of a container aren't
+ * written, so the delimiters before a dummy are only written when a non-dummy element follows it. A writer can be Reset()
+ * and re-used, so its buffers are only allocated once.
+ */
+public final class RdaObjectWriter {
+
+  private static final char[] DELIMITERS = Rda.RdaEncoding.DEFAULT_DELIMITER_CHARS;
+  private static final char ESCAPE_CHAR = Rda.RdaEncoding.DEFAULT_ESCAPE_CHAR;
+  private static final Rda.RdaEncoding.DelimiterTable DELIMITER_TABLE = new Rda.RdaEncoding.DelimiterTable(
+    DELIMITERS
+  );
+
+  private final StringBuilder _payload = new StringBuilder();
+  //the payload offsets of the delimiters between the elements, the other chars are the values' chars
+  private int[] _delimiterOffsets = new int[64];
+  private int _delimiterCount;
+  //the number of elements, and the number of delimiters written, of the open container at each level
+  private int[] _elementCounts = new int[8], _delimiterCounts = new int[8];
+  //if the open container at each level is written, i.e. it's not (yet) a dummy
+  private boolean[] _containerWritten = new boolean[8];
+  private int _level;
+  private int _dimension;
+  //the lowest level of a delimiter char in the values, and if there's an escape-char, which decide if the values need escaping
+  private int _lowestValueDelimiterLevel;
+  private boolean _hasEscapeChar;
+
+  public RdaObjectWriter() {
+    Reset();
+  }
+
+  //clears the written content, for writing another RDA-string
+  public RdaObjectWriter Reset() {
+    _payload.setLength(0);
+    _delimiterCount = 0;
+    _elementCounts[0] = 0;
+    _delimiterCounts[0] = 0;
+    _containerWritten[0] = true;
+    _level = 0;
+    _dimension = 0;
+    _lowestValueDelimiterLevel = DELIMITERS.length;
+    _hasEscapeChar = false;
+    return this;
+  }
+
+  //the value of the next element in the current container, a null value is written as an empty value (a dummy)
+  public RdaObjectWriter WriteValue(String value) {
+    int index = AddElement();
+    if (value != null) {
+      WriteDelimiters(_level, index);
+      int start = _payload.length();
+      _payload.append(value);
+      ValueAppended(start);
+    }
+    return this;
+  }
+
+  public RdaObjectWriter WriteInt(int value) {
+    return WriteLong(value);
+  }
+
+  public RdaObjectWriter WriteLong(long value) {
+    WriteDelimiters(_level, AddElement());
+    int start = _payload.length();
+    _payload.append(value);
+    ValueAppended(start);
+    return this;
+  }
+
+  public RdaObjectWriter WriteDouble(double value) {
+    WriteDelimiters(_level, AddElement());
+    int start = _payload.length();
+    _payload.append(value);
+    ValueAppended(start);
+    return this;
+  }
+
+  public RdaObjectWriter WriteBoolean(boolean value) {
+    WriteDelimiters(_level, AddElement());
+    _payload.append(value); //"true" or "false" has no delimiter chars
+    return this;
+  }
+
+  //starts a child container as the next element in the current container, the elements written until EndChild() are the child's
+  public RdaObjectWriter BeginChild() {
+    if (_level + 2 >= DELIMITERS.length) {
+      //as Rda's limit of the delimiters
+      throw new IllegalStateException(
+        String.format(
+          "The child exceeds the maximum dimension of %d.",
+          DELIMITERS.length - 1
+        )
+      );
+    }
+    AddElement();
+    _level++;
+    if (_level == _elementCounts.length) {
+      _elementCounts = Arrays.copyOf(_elementCounts, _level * 2);
+      _delimiterCounts = Arrays.copyOf(_delimiterCounts, _level * 2);
+      _containerWritten = Arrays.copyOf(_containerWritten, _level * 2);
+    }
+    _elementCounts[_level] = 0;
+    _delimiterCounts[_level] = 0;
+    _containerWritten[_level] = false;
+    return this;
+  }
+
+  public RdaObjectWriter EndChild() {
+    if (_level == 0) {
+      throw new IllegalStateException("There is no child to end.");
+    }
+    _level--;
+    return this;
+  }
+
+  //the object's properties as a child container, a null object is written as a dummy
+  public RdaObjectWriter WriteObject(IRda obj) {
+    if (obj == null) {
+      return WriteValue(null);
+    }
+    BeginChild();
+    obj.WriteTo(this);
+    return EndChild();
+  }
+
+  //the RDA as the next element in the current container, a composite RDA is written as a child container
+  public RdaObjectWriter WriteRda(Rda rda) {
+    if (rda == null || rda.IsDummy()) {
+      return WriteValue(null);
+    } else if (rda.Dimension() == 0) {
+      return WriteValue(rda.GetScalarValue());
+    }
+    BeginChild();
+    WriteElements(rda);
+    return EndChild();
+  }
+
+  //the RDA's elements as the next elements in the current container, a Dimension-0 RDA is written as a single value
+  public RdaObjectWriter WriteElements(Rda rda) {
+    if (rda.Dimension() == 0) {
+      return WriteValue(rda.IsDummy() ? null : rda.GetScalarValue());
+    }
+    for (int i = 0; i < rda.Length(); i++) {
+      WriteRda(rda.Elements.get(i));
+    }
+    return this;
+  }
+
+  public String ToString() {
+    StringBuilder result = new StringBuilder(
+      _payload.length() + _dimension + 2
+    );
+    try {
+      WriteTo(result);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by StringBuilder
+    }
+    return result.toString();
+  }
+
+  public String toString() {
+    return ToString();
+  }
+
+  //outputs the (v1) RDA-string, the header section and the escaped payload
+  public void WriteTo(Appendable output) throws IOException {
+    if (_level > 0) {
+      throw new IllegalStateException(
+        String.format("There are %d child(ren) not ended.", _level)
+      );
+    } else if (_dimension == 0) {
+      return; //nothing is written
+    }
+
+    for (int i = 0; i < _dimension; i++) {
+      output.append(DELIMITERS[i]);
+    }
+    output.append(ESCAPE_CHAR).append(DELIMITERS[0]);
+    if (!_hasEscapeChar && _lowestValueDelimiterLevel >= _dimension) {
+      output.append(_payload); //no value has a delimiter-in-use
+      return;
+    }
+
+    //the chars between the ones that need escaping are appended as a run
+    int runStart = 0, nextDelimiter = 0;
+    for (int i = 0; i < _payload.length(); i++) {
+      if (
+        nextDelimiter < _delimiterCount && _delimiterOffsets[nextDelimiter] == i
+      ) {
+        nextDelimiter++;
+        continue;
+      }
+      char c = _payload.charAt(i);
+      int level = DELIMITER_TABLE.Level(c);
+      if (c == ESCAPE_CHAR || (level > 0 && level <= _dimension)) {
+        output.append(_payload, runStart, i).append(ESCAPE_CHAR);
+        runStart = i;
+      }
+    }
+    output.append(_payload, runStart, _payload.length());
+  }
+
+  /* helpers */
+
+  //adds an element to the current container, returns its index
+  private int AddElement() {
+    _dimension = Math.max(_dimension, _level + 1);
+    return _elementCounts[_level]++;
+  }
+
+  //appends the delimiters before the indexed element of the container at the level, and before the container itself (and its
+  //parent containers) if it isn't written yet
+  private void WriteDelimiters(int level, int index) {
+    if (!_containerWritten[level]) {
+      WriteDelimiters(level - 1, _elementCounts[level - 1] - 1);
+      _containerWritten[level] = true;
+    }
+    for (; _delimiterCounts[level] < index; _delimiterCounts[level]++) {
+      if (_delimiterCount == _delimiterOffsets.length) {
+        _delimiterOffsets = Arrays.copyOf(_delimiterOffsets, _delimiterCount * 2);
+      }
+      _delimiterOffsets[_delimiterCount++] = _payload.length();
+      _payload.append(DELIMITERS[level]);
+    }
+  }
+
+  //notes the delimiter and the escape chars in the value appended from the offset
+  private void ValueAppended(int start) {
+    for (int i = start; i < _payload.length(); i++) {
+      char c = _payload.charAt(i);
+      int level = DELIMITER_TABLE.Level(c);
+      if (level > 0) {
+        _lowestValueDelimiterLevel = Math.min(_lowestValueDelimiterLevel, level - 1);
+      } else if (c == ESCAPE_CHAR) {
+        _hasEscapeChar = true;
+      }
+    }
+  }
+}
@@ -0,0 +1,262 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.Arrays;
+
+/*
+ * A re-usable RDA-string parser, for parsing a high rate of messages without Rda.Parse()'s per-message allocations - the parser
+ * keeps its char buffer, level stacks and un-escaping buffer between the messages, and it can refill an existing Rda tree,
+ * whose Rda objects are then re-used for the next message's elements at the same addresses -
+ *
+ *   RdaParser parser = new RdaParser();
+ *   Rda message = new Rda();
+ *   for (String rdaString : rdaStrings) {
+ *     parser.Parse(rdaString, message);    //the previous message's content is replaced
+ *     ...
+ *   }
+ *
+ * A parser isn't thread-safe: it can be owned by a thread (e.g. a connection's handler), or be borrowed from a pool for each
+ * parse. A refilled tree has the same content as Rda.Parse() would return, but its Rda objects are re-used by the next refill,
+ * so an element that is kept beyond its message should be copied first (e.g. by Rda.Parse(element.ToString())).
+ */
+public final class RdaParser {
+
+  //a buffer that's grown beyond this length (for a very large RDA-string) isn't kept for the next parse
+  static final int MAX_RETAINED_BUFFER_LENGTH = 1 << 20;
+
+  private final RdaValueCache _valueCache;
+  private char[] _chars = new char[0];
+  private final StringBuilder _unescaped = new StringBuilder();
+
+  //the open section at each depth (relative to the parsed RDA), its start offset, and the number of its parsed elements
+  private Rda[] _sections = new Rda[8];
+  private int[] _sectionStarts = new int[8];
+  private int[] _elementCounts = new int[8];
+  private int _bottomDepth; //the depth of the leaf sections
+  private Rda.RdaEncoding.DelimiterTable _delimiters;
+  private char _escapeChar;
+  private boolean _v2Formatted;
+
+  public RdaParser() {
+    this(null);
+  }
+
+  //the (short) leaf values are shared via the value-cache, see Rda.Parse(String, RdaValueCache)
+  public RdaParser(RdaValueCache valueCache) {
+    _valueCache = valueCache;
+  }
+
+  //same as Rda.Parse(), the RDA-string is parsed into a new Rda tree
+  public Rda Parse(String rdaString) {
+    return Parse(rdaString, null, null);
+  }
+
+  //replaces the (root) target's content with the parsed RDA-string, the target's existing elements (and its encoding, if the
+  //header section is the same) are re-used. Returns the target.
+  public Rda Parse(String rdaString, Rda target) {
+    if (target.Parent != null) {
+      throw new IllegalArgumentException(
+        "The target RDA is a child of another RDA."
+      );
+    }
+    return Parse(rdaString, target, target.GlobalEncoding());
+  }
+
+  //same as Parse(String, Rda), the RDA-string is the chars[0, length), which aren't kept by the parser (e.g. a decoding buffer)
+  Rda Parse(char[] chars, int length, Rda target) {
+    if (target.Parent != null) {
+      throw new IllegalArgumentException(
+        "The target RDA is a child of another RDA."
+      );
+    }
+    String scalarValue = Rda.HeaderSectionEnd(chars, length) <= 0
+      ? new String(chars, 0, length)
+      : null;
+    return Parse(chars, length, scalarValue, target, target.GlobalEncoding());
+  }
+
+  private Rda Parse(String rdaString, Rda target, Rda.RdaEncoding encoding) {
+    int length = rdaString == null ? 0 : rdaString.length();
+    char[] chars = Buffer(length);
+    if (length > 0) {
+      rdaString.getChars(0, length, chars, 0);
+    }
+    return Parse(chars, length, rdaString, target, encoding);
+  }
+
+  //the scalar value is the value of an RDA-string that has no header section, i.e. of a Dimension-0 RDA
+  private Rda Parse(
+    char[] chars,
+    int length,
+    String scalarValue,
+    Rda target,
+    Rda.RdaEncoding encoding
+  ) {
+    encoding = HeaderSectionEncoding(chars, length, encoding);
+    if (target == null) {
+      target = new Rda(encoding);
+    } else {
+      target.ResetParsedRoot(encoding);
+    }
+    if (encoding.Delimiters.length == 0) {
+      target.SetScalarValue(scalarValue);
+    } else {
+      int payloadStart = encoding.Delimiters.length + 2;
+      ParsePayload(
+        target,
+        chars,
+        payloadStart,
+        length,
+        Rda.DetermineParsingFormatVersion(chars, payloadStart, length) ==
+        Rda.FORMATTING_VERSION.V2
+      );
+    }
+
+    if (_unescaped.capacity() > MAX_RETAINED_BUFFER_LENGTH) {
+      _unescaped.setLength(0);
+      _unescaped.trimToSize();
+    }
+    return target;
+  }
+
+  //single-pass parsing of the payload section chars[payloadStart, payloadEnd) into the RDA's tree.
+  //The escaping state is tracked once for the whole payload, and an (un-escaped) delimiter closes the open sections
+  //at its own level and at all the levels below it. Only the section offsets are kept on a level-stack, the leaf-values
+  //are un-escaped directly from the char array, so no intermediate section-strings are created.
+  void ParsePayload(
+    Rda rda,
+    char[] chars,
+    int payloadStart,
+    int payloadEnd,
+    boolean v2Formatted
+  ) {
+    _delimiters = rda.GlobalEncoding().GetDelimiterTable();
+    _escapeChar = rda.EscapeChar();
+    _v2Formatted = v2Formatted;
+    int level = rda.Level();
+    //make sure the parsing doesn't go beyond the RDA-string "levels" limit (set by the encoding header section)
+    _bottomDepth = Math.max(_delimiters.Delimiters.length - level, 0);
+    if (_bottomDepth >= _sections.length) {
+      int length = Math.max(_bottomDepth + 1, _sections.length * 2);
+      _sections = Arrays.copyOf(_sections, length);
+      _sectionStarts = Arrays.copyOf(_sectionStarts, length);
+      _elementCounts = Arrays.copyOf(_elementCounts, length);
+    }
+
+    rda.ResetParsed(_bottomDepth);
+    _sections[0] = rda;
+    _sectionStarts[0] = payloadStart;
+    _elementCounts[0] = 0;
+    OpenSections(1, payloadStart);
+
+    char escapeChar = _escapeChar;
+    boolean escaping = false;
+    for (int i = payloadStart; i < payloadEnd; i++) {
+      char currChar = chars[i];
+      if (currChar == escapeChar) {
+        escaping = !escaping; //note it flips when escape-char is hit again
+        continue;
+      } else if (!escaping) {
+        //the (relative) depth of the section that is ended by this delimiter, 0 or less if it's not a delimiter of the RDA's levels
+        int sectionDepth = _delimiters.Level(currChar) - level;
+        if (sectionDepth > 0) {
+          //close the lower-level sections, then the section at the delimiter's level
+          CloseSections(chars, sectionDepth + 1, i);
+          CloseSection(chars, sectionDepth, i);
+          OpenSections(sectionDepth, i + 1);
+        }
+      }
+      escaping = false;
+    }
+
+    CloseSections(chars, 1, payloadEnd);
+    rda.TruncateElements(_elementCounts[0]);
+    Arrays.fill(_sections, 0, _bottomDepth + 1, null); //the tree isn't held by the parser
+  }
+
+  /* helpers */
+
+  //the buffer for the chars of an RDA-string of the length
+  private char[] Buffer(int length) {
+    if (length <= _chars.length) {
+      return _chars;
+    } else if (length > MAX_RETAINED_BUFFER_LENGTH) {
+      return new char[length];
+    }
+    _chars = new char[Math.max(length, _chars.length + (_chars.length >> 1))];
+    return _chars;
+  }
+
+  //the encoding of the chars' header section, the current encoding is re-used if it has the same delimiters and escape-char
+  private static Rda.RdaEncoding HeaderSectionEncoding(
+    char[] chars,
+    int length,
+    Rda.RdaEncoding current
+  ) {
+    int headerSectionEnd = Rda.HeaderSectionEnd(chars, length);
+    if (headerSectionEnd <= 0) {
+      return new Rda.RdaEncoding();
+    } else if (
+      current != null &&
+      current.EscapeChar == chars[headerSectionEnd - 1] &&
+      Arrays.equals(
+        current.Delimiters,
+        0,
+        current.Delimiters.length,
+        chars,
+        0,
+        headerSectionEnd - 1
+      )
+    ) {
+      return current;
+    }
+    return Rda.HeaderSectionEncoder(chars, headerSectionEnd);
+  }
+
+  //opens a new (child) section at each depth from 'fromDepth' down to the bottom level
+  private void OpenSections(int fromDepth, int sectionStart) {
+    for (int d = fromDepth; d <= _bottomDepth; d++) {
+      _sections[d] =
+        _sections[d - 1].ParsedChild(_elementCounts[d - 1]++, _bottomDepth - d);
+      _sectionStarts[d] = sectionStart;
+      _elementCounts[d] = 0;
+    }
+  }
+
+  //closes the open sections from the bottom level up to 'toDepth', as their parent sections are also ending at 'sectionEnd'.
+  //An empty last-section in a non-empty parent section (i.e. a trailing delimiter) is discarded, when its parent is closed.
+  private void CloseSections(char[] chars, int toDepth, int sectionEnd) {
+    for (int d = _bottomDepth; d >= toDepth; d--) {
+      if (
+        _sectionStarts[d] == sectionEnd && _sectionStarts[d - 1] < sectionEnd
+      ) {
+        _elementCounts[d - 1]--;
+      } else {
+        CloseSection(chars, d, sectionEnd);
+      }
+    }
+  }
+
+  //a section at the bottom level is a leaf, it stores the un-escaped section chars as its scalar value
+  private void CloseSection(char[] chars, int depth, int sectionEnd) {
+    Rda section = _sections[depth];
+    section.TruncateElements(_elementCounts[depth]);
+    if (depth == _bottomDepth) {
+      section.SetParsedValue(
+        Rda.UnEscape(
+          chars,
+          _sectionStarts[depth],
+          sectionEnd,
+          _delimiters,
+          _escapeChar,
+          _v2Formatted,
+          _valueCache,
+          _unescaped
+        )
+      );
+    }
+  }
+}
@@ -0,0 +1,339 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+
+/*
+ * A path query, which selects the elements at the matching index-addresses of an RDA - the path is compiled once, and the
+ * query can be run on any number of RDAs (or RDA-strings). A path is a '.'-separated list of steps, one for each level -
+ *
+ *   3          the element at index 3
+ *   0..99      the elements at the indexes from 0 to 99 (inclusive)
+ *   *          all the elements
+ *
+ * e.g. "*.3" selects the column 3 of every row of a table, and "0..99.2.*" selects all the elements at index 2 of the first
+ * 100 rows. An empty path selects the RDA itself.
+ *
+ * The matches are selected as GetRda() would address them, e.g. the index-0 element of a Dimension-0 RDA is the RDA itself,
+ * but a query never creates (dummy) elements - an index beyond an RDA's elements has no match. A match's value is its
+ * left-most leaf value, as with GetValue().
+ *
+ * The values can also be read without an Rda tree: from a streaming RdaReader, whose events are matched as they are read
+ * (so a feed is queried in the reader's bounded memory), or from an RdaObjectReader, which has the whole RDA-string in
+ * memory but skips the unmatched elements without un-escaping them.
+ */
+public final class RdaQuery {
+
+  private final String _path;
+  //the index range of each step, from and to (inclusive), which is Integer.MAX_VALUE for a '*' step
+  private final int[] _from, _to;
+
+  private RdaQuery(String path, int[] from, int[] to) {
+    _path = path;
+    _from = from;
+    _to = to;
+  }
+
+  public static RdaQuery Compile(String path) {
+    List<int[]> steps = new ArrayList<>();
+    int position = 0, length = path.length();
+    while (position < length) {
+      int[] step = new int[2];
+      if (path.charAt(position) == '*') {
+        step[0] = 0;
+        step[1] = Integer.MAX_VALUE;
+        position++;
+      } else {
+        position = ParseIndex(path, position, step, 0);
+        step[1] = step[0];
+        if (path.startsWith("..", position)) {
+          position = ParseIndex(path, position + 2, step, 1);
+          if (step[1] < step[0]) {
+            throw new IllegalArgumentException(
+              String.format(
+                "Invalid range %d..%d in path '%s'.",
+                step[0],
+                step[1],
+                path
+              )
+            );
+          }
+        }
+      }
+      steps.add(step);
+
+      if (position < length) {
+        if (path.charAt(position) != '.' || position == length - 1) {
+          throw InvalidPath(path, position);
+        }
+        position++;
+      }
+    }
+
+    int[] from = new int[steps.size()], to = new int[steps.size()];
+    for (int i = 0; i < from.length; i++) {
+      from[i] = steps.get(i)[0];
+      to[i] = steps.get(i)[1];
+    }
+    return new RdaQuery(path, from, to);
+  }
+
+  public String Path() {
+    return _path;
+  }
+
+  public String toString() {
+    return _path;
+  }
+
+  //the matching elements, in the order of their index-addresses
+  public Iterable<Rda> Select(Rda rda) {
+    return () -> new Matches(rda);
+  }
+
+  //the matching elements' values
+  public Iterable<String> SelectValues(Rda rda) {
+    return () -> {
+      Matches matches = new Matches(rda);
+      return new Iterator<String>() {
+        public boolean hasNext() {
+          return matches.hasNext();
+        }
+
+        public String next() {
+          return matches.next().GetScalarValue();
+        }
+      };
+    };
+  }
+
+  //the first matching element, or null if there's no match
+  public Rda SelectFirst(Rda rda) {
+    Matches matches = new Matches(rda);
+    return matches.hasNext() ? matches.next() : null;
+  }
+
+  //the matching elements' values read from the reader's events, without loading the RDA-string or building an Rda tree.
+  //A match's value is its left-most leaf's value, so a VALUE event is reported if its leaf is the left-most leaf of a
+  //match. The reading stops when the first step's range has been passed, the rest of the input isn't read
+  public void ForEachValue(RdaReader reader, Consumer<String> action)
+    throws IOException {
+    RdaReader.EventType eventType;
+    while ((eventType = reader.Next()) != RdaReader.EventType.END_DOCUMENT) {
+      int depth = reader.GetDepth();
+      if (_from.length > 0 && depth > 0 && reader.GetIndex(0) > _to[0]) {
+        return;
+      } else if (
+        eventType == RdaReader.EventType.VALUE &&
+        IsLeftMostLeafOfMatch(reader, depth)
+      ) {
+        action.accept(reader.GetValue());
+      }
+    }
+  }
+
+  //the matching elements' values read from the RDA-string, without parsing it into an Rda tree (see RdaObjectReader)
+  public void ForEachValue(String rdaString, Consumer<String> action) {
+    ForEachValue(new RdaObjectReader(rdaString), action);
+  }
+
+  //the matching elements' values read from the reader's current container, which are consumed
+  public void ForEachValue(RdaObjectReader reader, Consumer<String> action) {
+    if (_from.length == 0) {
+      action.accept(reader.ReadValue());
+    } else {
+      ForEachValue(reader, 0, action);
+    }
+  }
+
+  //an equality index of the matching elements (e.g. the rows of a table) by their values at the key path (e.g. a column).
+  //NB, the index isn't updated when the RDA is changed, it should be re-built
+  public Index BuildIndex(Rda rda, String keyPath) {
+    RdaQuery keyQuery = Compile(keyPath);
+    Map<String, List<Rda>> matches = new HashMap<>();
+    for (Rda match : Select(rda)) {
+      for (String key : keyQuery.SelectValues(match)) {
+        List<Rda> keyMatches = matches.computeIfAbsent(
+          key,
+          k -> new ArrayList<>(1)
+        );
+        if (
+          keyMatches.isEmpty() ||
+          keyMatches.get(keyMatches.size() - 1) != match
+        ) {
+          keyMatches.add(match); //a match with repeated key values is indexed once
+        }
+      }
+    }
+    return new Index(keyQuery, matches);
+  }
+
+  public static final class Index {
+
+    private final RdaQuery _keyQuery;
+    private final Map<String, List<Rda>> _matches;
+
+    private Index(RdaQuery keyQuery, Map<String, List<Rda>> matches) {
+      _keyQuery = keyQuery;
+      _matches = matches;
+    }
+
+    public RdaQuery KeyQuery() {
+      return _keyQuery;
+    }
+
+    //the matches that have the key value, in the order of their index-addresses
+    public List<Rda> Find(String key) {
+      List<Rda> matches = _matches.get(key);
+      return matches == null
+        ? Collections.emptyList()
+        : Collections.unmodifiableList(matches);
+    }
+
+    //the first match that has the key value, or null if there isn't one
+    public Rda FindFirst(String key) {
+      List<Rda> matches = _matches.get(key);
+      return matches == null ? null : matches.get(0);
+    }
+
+    //the number of distinct key values
+    public int KeyCount() {
+      return _matches.size();
+    }
+  }
+
+  /* helpers */
+
+  //parses the digits at the position into the step, returns the position after the digits
+  private static int ParseIndex(
+    String path,
+    int position,
+    int[] step,
+    int i
+  ) {
+    int start = position;
+    long index = 0;
+    while (
+      position < path.length() && Character.isDigit(path.charAt(position))
+    ) {
+      index = index * 10 + (path.charAt(position++) - '0');
+      if (index > Integer.MAX_VALUE) {
+        throw InvalidPath(path, start);
+      }
+    }
+    if (position == start) {
+      throw InvalidPath(path, start);
+    }
+    step[i] = (int) index;
+    return position;
+  }
+
+  private static IllegalArgumentException InvalidPath(
+    String path,
+    int position
+  ) {
+    return new IllegalArgumentException(
+      String.format("Invalid path '%s' at position %d.", path, position)
+    );
+  }
+
+  //if the reader's leaf is the left-most leaf of a match, i.e. its index-address is in the steps' ranges and it's all 0
+  //after the steps (below a match), and the steps after the leaf's level include 0 (the index-0 element of a leaf is itself)
+  private boolean IsLeftMostLeafOfMatch(RdaReader reader, int depth) {
+    for (int level = 0; level < Math.max(depth, _from.length); level++) {
+      int index = level < depth ? reader.GetIndex(level) : 0;
+      if (
+        level < _from.length
+          ? index < _from[level] || index > _to[level]
+          : index != 0
+      ) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  //reads the elements of the reader's current container, the ones in the step's range are matched by the next steps
+  private void ForEachValue(
+    RdaObjectReader reader,
+    int step,
+    Consumer<String> action
+  ) {
+    for (int i = 0; i <= _to[step] && reader.HasNext(); i++) {
+      if (i < _from[step]) {
+        reader.Skip();
+      } else if (step == _from.length - 1) {
+        action.accept(reader.ReadValue());
+      } else {
+        reader.BeginChild();
+        ForEachValue(reader, step + 1, action);
+        reader.EndChild();
+      }
+    }
+  }
+
+  //a depth-first walk of the matching index-addresses, with the current container and the next index at each step
+  private final class Matches implements Iterator<Rda> {
+
+    private final Rda[] _containers = new Rda[_from.length];
+    private final int[] _next = new int[_from.length];
+    private int _step;
+    private Rda _match;
+
+    Matches(Rda rda) {
+      if (_from.length == 0) {
+        _match = rda;
+        _step = -1;
+      } else {
+        _containers[0] = rda;
+        _next[0] = _from[0];
+      }
+    }
+
+    public boolean hasNext() {
+      if (_match == null) {
+        _match = Advance();
+      }
+      return _match != null;
+    }
+
+    public Rda next() {
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Rda match = _match;
+      _match = null;
+      return match;
+    }
+
+    private Rda Advance() {
+      while (_step >= 0) {
+        int step = _step;
+        Rda child = _next[step] <= _to[step]
+          ? _containers[step].PeekChild(_next[step]++)
+          : null;
+        if (child == null) {
+          _step--; //the step's range, or the container's elements, are all visited
+        } else if (step == _from.length - 1) {
+          return child;
+        } else {
+          _step = step + 1;
+          _containers[_step] = child;
+          _next[_step] = _from[_step];
+        }
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,340 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.Charset;
+import java.util.NoSuchElementException;
+
+/*
+ * A streaming (pull) reader of an RDA-string. The RDA's elements are reported as events while the input is being read, so
+ * an RDA feed can be filtered or aggregated without loading the RDA-string into memory or building an Rda tree.
+ *
+ * The events follow the tree that Rda.Parse() builds from the same RDA-string: a composite element (including the root) is
+ * reported by START_ELEMENT and END_ELEMENT events, and a leaf element's (un-escaped) value is reported by a VALUE event.
+ * Each event carries the index-address of its element (the root's address is empty).
+ *
+ * Only the header section and the current element value are buffered, so the memory used is bounded by the longest value
+ * (an RDA-string without a header section is a single value).
+ */
+public class RdaReader implements Closeable {
+
+  public enum EventType {
+    START_ELEMENT,
+    VALUE,
+    END_ELEMENT,
+    END_DOCUMENT,
+  }
+
+  static final int BUFFER_SIZE = 8192;
+
+  private final Reader _reader;
+  private char[] _buffer = new char[BUFFER_SIZE];
+  private int _position, _limit;
+  private boolean _endOfInput;
+
+  //header section, set when the first event is read
+  private Rda.RdaEncoding _encoding;
+  private Rda.FORMATTING_VERSION _formattingVersion;
+  private char[] _delimiters = new char[0];
+  private Rda.RdaEncoding.DelimiterTable _delimiterTable;
+  private char _escapeChar;
+
+  //parsing state - the index of the open section at each depth, and the (escaped) chars of the open leaf section
+  private int[] _sectionIndexes;
+  private char[] _valueChars = new char[64];
+  private int _valueLength;
+  private boolean _escaping;
+  //the depth of the sections that are opened after the last delimiter, their events are only reported when the next char
+  //shows they are not a trailing empty section (which is dropped), 0 if there are no such sections
+  private int _pendingSectionDepth;
+
+  //events waiting to be reported (a delimiter closes and opens a number of elements), the queue size is a power of 2
+  private EventType[] _queuedTypes = new EventType[4];
+  private int[] _queuedDepths = new int[4], _queuedIndexes = new int[4];
+  private int _queueHead, _queueTail;
+  private String _queuedValue;
+
+  //the current event
+  private EventType _eventType;
+  private int[] _path = new int[1];
+  private int _pathLength;
+  private String _value;
+
+  public RdaReader(Reader reader) {
+    _reader = reader;
+  }
+
+  public RdaReader(InputStream input, Charset charset) {
+    this(new InputStreamReader(input, charset));
+  }
+
+  public RdaReader(ReadableByteChannel channel, Charset charset) {
+    this(Channels.newReader(channel, charset));
+  }
+
+  /**
+   * Event API
+   */
+
+  //reads the next event, and returns its type
+  public EventType Next() throws IOException {
+    if (_eventType == EventType.END_DOCUMENT) {
+      throw new NoSuchElementException("The end of the RDA has been reached.");
+    } else if (_encoding == null) {
+      ReadHeaderSection();
+    }
+
+    while (_queueHead == _queueTail) {
+      ReadPayload();
+    }
+
+    int queued = _queueHead++ & (_queuedTypes.length - 1);
+    _eventType = _queuedTypes[queued];
+    _pathLength = _queuedDepths[queued];
+    if (_pathLength > 0) {
+      _path[_pathLength - 1] = _queuedIndexes[queued];
+    }
+    if (_eventType == EventType.VALUE) {
+      _value = _queuedValue;
+      _queuedValue = null;
+    } else {
+      _value = null;
+    }
+
+    return _eventType;
+  }
+
+  public boolean HasNext() {
+    return _eventType != EventType.END_DOCUMENT;
+  }
+
+  public EventType GetEventType() {
+    return _eventType;
+  }
+
+  //the number of indexes in the current element's index-address, i.e. its level in the RDA
+  public int GetDepth() {
+    return _pathLength;
+  }
+
+  //the index of the current element (or its parent at the given level) amongst its siblings
+  public int GetIndex(int level) {
+    if (level < 0 || level >= _pathLength) {
+      throw new IndexOutOfBoundsException("Level " + level + " is out of range.");
+    }
+    return _path[level];
+  }
+
+  //the current element's index-address, as used by Rda.GetRda(int[])
+  public int[] GetPath() {
+    int[] path = new int[_pathLength];
+    System.arraycopy(_path, 0, path, 0, _pathLength);
+    return path;
+  }
+
+  //the (un-escaped) value of a VALUE event, null for other events
+  public String GetValue() {
+    return _value;
+  }
+
+  //the RDA's encoding, as defined by the header section (no delimiters if the RDA-string has no header section)
+  public Rda.RdaEncoding GetEncoding() throws IOException {
+    if (_encoding == null) {
+      ReadHeaderSection();
+    }
+    return _encoding;
+  }
+
+  public Rda.FORMATTING_VERSION GetFormattingVersion() throws IOException {
+    if (_encoding == null) {
+      ReadHeaderSection();
+    }
+    return _formattingVersion;
+  }
+
+  public void close() throws IOException {
+    _reader.close();
+  }
+
+  /* below are helper methods */
+
+  //reads the header section (with the same rules as Rda.Parse()), and queues the root's events
+  private void ReadHeaderSection() throws IOException {
+    int headerSectionEnd;
+    while (
+      (headerSectionEnd = Rda.HeaderSectionEnd(_buffer, _limit)) < 0 &&
+      !_endOfInput
+    ) {
+      FillBuffer(0);
+    }
+
+    _formattingVersion = Rda.FORMATTING_VERSION.V1;
+    if (headerSectionEnd <= 0) {
+      //no header section, the whole RDA-string is the root's scalar value
+      _encoding = new Rda.RdaEncoding();
+      StringBuilder value = new StringBuilder();
+      value.append(_buffer, 0, _limit);
+      int count;
+      while ((count = _reader.read(_buffer, 0, _buffer.length)) >= 0) {
+        value.append(_buffer, 0, count);
+      }
+      _endOfInput = true;
+      _position = _limit = 0;
+      _sectionIndexes = new int[1];
+      QueueEvent(EventType.VALUE, 0);
+      _queuedValue = value.toString();
+      QueueEvent(EventType.END_DOCUMENT, 0);
+      return;
+    }
+
+    _encoding = Rda.HeaderSectionEncoder(_buffer, headerSectionEnd);
+    _delimiters = _encoding.Delimiters;
+    _delimiterTable = _encoding.GetDelimiterTable();
+    _escapeChar = _encoding.EscapeChar;
+    _position = headerSectionEnd + 1;
+
+    //the formatting version is determined by the payload's first line
+    Rda.FORMATTING_VERSION formattingVersion;
+    while (
+      (
+        formattingVersion =
+          Rda.FirstLineFormatVersion(_buffer, _position, _limit)
+      ) ==
+      null &&
+      !_endOfInput
+    ) {
+      FillBuffer(_position);
+    }
+    if (formattingVersion != null) {
+      _formattingVersion = formattingVersion;
+    }
+
+    int depth = _delimiters.length;
+    _sectionIndexes = new int[depth + 1];
+    _path = new int[depth];
+    int queueSize = Integer.highestOneBit(2 * depth + 2) << 1;
+    _queuedTypes = new EventType[queueSize];
+    _queuedDepths = new int[queueSize];
+    _queuedIndexes = new int[queueSize];
+
+    //the root and its first-child sections at each level are never dropped
+    for (int d = 0; d < depth; d++) {
+      QueueEvent(EventType.START_ELEMENT, d);
+    }
+  }
+
+  //reads the payload chars, until there are events to report
+  private void ReadPayload() throws IOException {
+    int depth = _delimiters.length;
+    while (_queueHead == _queueTail) {
+      if (_position == _limit) {
+        if (_endOfInput) {
+          //the end of the payload closes all the open sections (a pending section is a trailing empty section)
+          CloseSections(_pendingSectionDepth > 0 ? _pendingSectionDepth - 1 : depth, 1);
+          _pendingSectionDepth = 0;
+          QueueEvent(EventType.END_ELEMENT, 0);
+          QueueEvent(EventType.END_DOCUMENT, 0);
+          return;
+        }
+        FillBuffer(_position);
+        continue;
+      }
+
+      char currChar = _buffer[_position++];
+      //the depth of the section that is ended by this char, 0 if it's not a delimiter
+      int sectionDepth = currChar != _escapeChar && !_escaping
+        ? _delimiterTable.Level(currChar)
+        : 0;
+
+      int closeFromDepth = depth;
+      if (_pendingSectionDepth > 0) {
+        if (sectionDepth > 0 && sectionDepth < _pendingSectionDepth) {
+          closeFromDepth = _pendingSectionDepth - 1; //the pending sections are dropped
+        } else {
+          for (int d = _pendingSectionDepth; d < depth; d++) {
+            QueueEvent(EventType.START_ELEMENT, d);
+          }
+        }
+        _pendingSectionDepth = 0;
+      }
+
+      if (sectionDepth > 0) {
+        CloseSections(closeFromDepth, sectionDepth);
+        //open the next sibling section, and its first-child sections
+        _sectionIndexes[sectionDepth]++;
+        for (int d = sectionDepth + 1; d <= depth; d++) {
+          _sectionIndexes[d] = 0;
+        }
+        _pendingSectionDepth = sectionDepth;
+        _escaping = false;
+      } else {
+        if (_valueLength == _valueChars.length) {
+          char[] valueChars = new char[_valueChars.length * 2];
+          System.arraycopy(_valueChars, 0, valueChars, 0, _valueLength);
+          _valueChars = valueChars;
+        }
+        _valueChars[_valueLength++] = currChar;
+        _escaping = currChar == _escapeChar && !_escaping; //note it flips when escape-char is hit again
+      }
+    }
+  }
+
+  //queues the events of closing the open sections from 'fromDepth' up to 'toDepth'
+  private void CloseSections(int fromDepth, int toDepth) {
+    int depth = _delimiters.length;
+    for (int d = fromDepth; d >= toDepth; d--) {
+      if (d == depth) {
+        QueueEvent(EventType.VALUE, d);
+        _queuedValue =
+          Rda.UnEscape(
+            _valueChars,
+            0,
+            _valueLength,
+            _delimiterTable,
+            _escapeChar,
+            _formattingVersion == Rda.FORMATTING_VERSION.V2
+          );
+      } else {
+        QueueEvent(EventType.END_ELEMENT, d);
+      }
+    }
+    _valueLength = 0;
+  }
+
+  private void QueueEvent(EventType eventType, int depth) {
+    int queued = _queueTail++ & (_queuedTypes.length - 1);
+    _queuedTypes[queued] = eventType;
+    _queuedDepths[queued] = depth;
+    _queuedIndexes[queued] = _sectionIndexes[depth];
+  }
+
+  //reads more chars into the buffer, keeping the buffered chars from 'keepFrom' (the buffer is expanded if required)
+  private void FillBuffer(int keepFrom) throws IOException {
+    if (keepFrom > 0) {
+      System.arraycopy(_buffer, keepFrom, _buffer, 0, _limit - keepFrom);
+      _limit -= keepFrom;
+      _position -= keepFrom;
+    }
+    if (_limit == _buffer.length) {
+      char[] buffer = new char[_buffer.length * 2];
+      System.arraycopy(_buffer, 0, buffer, 0, _limit);
+      _buffer = buffer;
+    }
+
+    int count = _reader.read(_buffer, _limit, _buffer.length - _limit);
+    if (count < 0) {
+      _endOfInput = true;
+    } else {
+      _limit += count;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.Arrays;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/*
+ * A spliterator of the branches at a depth of an RDA, or of its leaves, in the order of their index-addresses (see
+ * Rda.Leaves() and Rda.ValuesAt()). As with GetRda(), the index-0 element of a leaf is the leaf itself, so a leaf above the
+ * depth is the (only) branch at the depth below it.
+ *
+ * The walk is depth-first, with the current branch and the next index at each level on a stack. It's split by halving the
+ * range of the elements that are not yet walked, and an only remaining element is split by its own elements - so a wide
+ * RDA (e.g. a batch of records) is split evenly, at whichever level it's wide.
+ *
+ * The branches at depth 1 (see Rda.Children()) are an index range of one branch's elements, which is split by halving the
+ * range, so their spliterator is SIZED and SUBSIZED. The sizes at the other depths are estimates.
+ */
+final class RdaSpliterator implements Spliterator<Rda> {
+
+  static final int LEAVES = -1;
+
+  private final int _depth; //the depth of the selected branches, or LEAVES
+  private int _rootDepth; //the depth of the branch at the bottom of the stack
+  //the stack of the walk, _top is -1 when the walk is ended
+  private Rda[] _branches = new Rda[8];
+  private int[] _next = new int[8], _end = new int[8];
+  private int _top;
+
+  RdaSpliterator(Rda rda, int depth) {
+    this(rda, 0, ElementCount(rda, depth), 0, depth);
+  }
+
+  private RdaSpliterator(
+    Rda branch,
+    int from,
+    int to,
+    int depth,
+    int selectedDepth
+  ) {
+    _depth = selectedDepth;
+    _rootDepth = depth;
+    _branches[0] = branch;
+    _next[0] = from;
+    _end[0] = to;
+    _top = 0;
+  }
+
+  public boolean tryAdvance(Consumer<? super Rda> action) {
+    while (_top >= 0) {
+      if (_next[_top] == _end[_top]) {
+        _top--;
+        continue;
+      }
+      Rda child = _branches[_top].PeekChild(_next[_top]++);
+      if (IsSelected(child, _rootDepth + _top + 1)) {
+        action.accept(child);
+        return true;
+      }
+      Push(child);
+    }
+    return false;
+  }
+
+  //the first half of the elements that are not yet walked, null if the walk is in an element
+  public Spliterator<Rda> trySplit() {
+    if (_top != 0) {
+      return null;
+    }
+    int remaining = _end[0] - _next[0];
+    while (remaining == 1) {
+      Rda only = _branches[0].PeekChild(_next[0]);
+      if (IsSelected(only, _rootDepth + 1)) {
+        return null;
+      }
+      _branches[0] = only;
+      _rootDepth++;
+      _next[0] = 0;
+      _end[0] = remaining = ElementCount(only, _depth);
+    }
+    if (remaining < 2) {
+      return null;
+    }
+
+    int middle = _next[0] + remaining / 2;
+    Spliterator<Rda> prefix = new RdaSpliterator(
+      _branches[0],
+      _next[0],
+      middle,
+      _rootDepth,
+      _depth
+    );
+    _next[0] = middle;
+    return prefix;
+  }
+
+  //the number of the elements that are not yet walked, which is exact at depth 1 (the walk never goes into an element),
+  //and otherwise relative to the other splits
+  public long estimateSize() {
+    return _top < 0 ? 0 : _end[0] - _next[0] + (_top > 0 ? 1 : 0);
+  }
+
+  public int characteristics() {
+    return _depth == 1 ? ORDERED | NONNULL | SIZED | SUBSIZED : ORDERED | NONNULL;
+  }
+
+  /* helpers */
+
+  private boolean IsSelected(Rda rda, int depth) {
+    return _depth == LEAVES ? rda.Length() == 0 : depth == _depth;
+  }
+
+  //a leaf has no element when the leaves are selected, otherwise its index-0 element is itself
+  private static int ElementCount(Rda rda, int selectedDepth) {
+    int length = rda.Length();
+    return length == 0 && selectedDepth != LEAVES ? 1 : length;
+  }
+
+  private void Push(Rda branch) {
+    if (++_top == _branches.length) {
+      _branches = Arrays.copyOf(_branches, _top * 2);
+      _next = Arrays.copyOf(_next, _top * 2);
+      _end = Arrays.copyOf(_end, _top * 2);
+    }
+    _branches[_top] = branch;
+    _next[_top] = 0;
+    _end[_top] = ElementCount(branch, _depth);
+  }
+}
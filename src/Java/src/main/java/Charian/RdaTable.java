@@ -0,0 +1,331 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/*
+ * The table fast path (see Rda.ParseTable() and Rda.EncodeTable()) - a 2-level RDA-string, i.e. a table of rows (on the
+ * first level) of fields (on the second level), is parsed directly into String arrays, and String arrays are encoded
+ * directly into an RDA-string, without the per-cell Rda objects.
+ *
+ * The results are the same as of the Rda tree: a parsed table has the values of Parse(rdaString)'s rows' elements (see
+ * ToCells()), and an encoded table is the same as the ToString() of the Rda that has each cell's value set at its
+ * [row, column] address - e.g. a null cell is a dummy, and the trailing dummies of a row (and of the table) are dropped.
+ * An RDA-string of another number of levels is parsed into the Rda tree, and its cells are taken from the tree.
+ */
+final class RdaTable {
+
+  private RdaTable() {}
+
+  static String[][] ParseRows(String rdaString) {
+    Cells cells = Parse(rdaString);
+    String[][] rows = new String[cells.RowCount][];
+    for (int r = 0, cellStart = 0; r < rows.length; r++) {
+      int cellEnd = cells.RowEnds[r];
+      rows[r] = Arrays.copyOfRange(cells.Values, cellStart, cellEnd);
+      cellStart = cellEnd;
+    }
+    return rows;
+  }
+
+  //the cells are column-major, i.e. columns[c][r] is the field c of the row r, which is null if the row has no field c
+  static String[][] ParseColumns(String rdaString) {
+    Cells cells = Parse(rdaString);
+    int columnCount = 0;
+    for (int r = 0, cellStart = 0; r < cells.RowCount; r++) {
+      columnCount = Math.max(columnCount, cells.RowEnds[r] - cellStart);
+      cellStart = cells.RowEnds[r];
+    }
+
+    String[][] columns = new String[columnCount][cells.RowCount];
+    for (int r = 0, cellStart = 0; r < cells.RowCount; r++) {
+      int cellEnd = cells.RowEnds[r];
+      for (int c = 0; c < cellEnd - cellStart; c++) {
+        columns[c][r] = cells.Values[cellStart + c];
+      }
+      cellStart = cellEnd;
+    }
+    return columns;
+  }
+
+  static String EncodeRows(String[][] rows) {
+    return Encode(new RowMajor(rows));
+  }
+
+  static String EncodeColumns(String[][] columns) {
+    return Encode(new ColumnMajor(columns));
+  }
+
+  /* helpers */
+
+  //the table's cells in row order, and the end (in the Values) of each row's cells
+  private static final class Cells {
+
+    String[] Values = new String[64];
+    int Count;
+    int[] RowEnds = new int[16];
+    int RowCount;
+
+    void Add(String value) {
+      if (Count == Values.length) {
+        Values = Arrays.copyOf(Values, Count * 2);
+      }
+      Values[Count++] = value;
+    }
+
+    void EndRow() {
+      if (RowCount == RowEnds.length) {
+        RowEnds = Arrays.copyOf(RowEnds, RowCount * 2);
+      }
+      RowEnds[RowCount++] = Count;
+    }
+  }
+
+  private static Cells Parse(String rdaString) {
+    int length = rdaString == null ? 0 : rdaString.length();
+    char[] chars = new char[length];
+    if (length > 0) {
+      rdaString.getChars(0, length, chars, 0);
+    }
+
+    Cells cells = new Cells();
+    int headerSectionEnd = Rda.HeaderSectionEnd(chars, length);
+    if (headerSectionEnd != 3) {
+      ToCells(Rda.Parse(rdaString), cells); //not a table, i.e. a scalar value or an RDA-string of another number of levels
+      return cells;
+    }
+
+    Rda.RdaEncoding encoding = Rda.HeaderSectionEncoder(
+      chars,
+      headerSectionEnd
+    );
+    int payloadStart = encoding.Delimiters.length + 2;
+    ParsePayload(
+      chars,
+      payloadStart,
+      length,
+      encoding.GetDelimiterTable(),
+      encoding.EscapeChar,
+      Rda.DetermineParsingFormatVersion(chars, payloadStart, length) ==
+      Rda.FORMATTING_VERSION.V2,
+      cells
+    );
+    return cells;
+  }
+
+  //the same single pass as RdaParser.ParsePayload() on a 2-level payload, which adds the rows' un-escaped field values
+  //to the cells - a trailing empty field (of a non-empty row), and a trailing empty row, are discarded as by the parser
+  private static void ParsePayload(
+    char[] chars,
+    int payloadStart,
+    int payloadEnd,
+    Rda.RdaEncoding.DelimiterTable delimiters,
+    char escapeChar,
+    boolean v2Formatted,
+    Cells cells
+  ) {
+    StringBuilder unescaped = new StringBuilder();
+    int rowStart = payloadStart, fieldStart = payloadStart;
+    boolean escaping = false;
+    for (int i = payloadStart; i < payloadEnd; i++) {
+      char currChar = chars[i];
+      if (currChar == escapeChar) {
+        escaping = !escaping;
+        continue;
+      } else if (!escaping) {
+        int level = delimiters.Level(currChar);
+        if (level == 2) {
+          cells.Add(
+            Rda.UnEscape(
+              chars,
+              fieldStart,
+              i,
+              delimiters,
+              escapeChar,
+              v2Formatted,
+              null,
+              unescaped
+            )
+          );
+          fieldStart = i + 1;
+        } else if (level == 1) {
+          if (fieldStart < i || rowStart == i) {
+            cells.Add(
+              Rda.UnEscape(
+                chars,
+                fieldStart,
+                i,
+                delimiters,
+                escapeChar,
+                v2Formatted,
+                null,
+                unescaped
+              )
+            );
+          }
+          cells.EndRow();
+          rowStart = fieldStart = i + 1;
+        }
+      }
+      escaping = false;
+    }
+
+    if (rowStart < payloadEnd || rowStart == payloadStart) {
+      if (fieldStart < payloadEnd || rowStart == payloadEnd) {
+        cells.Add(
+          Rda.UnEscape(
+            chars,
+            fieldStart,
+            payloadEnd,
+            delimiters,
+            escapeChar,
+            v2Formatted,
+            null,
+            unescaped
+          )
+        );
+      }
+      cells.EndRow();
+    }
+  }
+
+  //the values of the RDA's elements at [row, field], as RdaQuery "*.*" selects them (a leaf is its own index-0 element)
+  private static void ToCells(Rda rda, Cells cells) {
+    int rowCount = Math.max(rda.Length(), 1);
+    for (int r = 0; r < rowCount; r++) {
+      Rda row = rda.PeekChild(r);
+      int fieldCount = Math.max(row.Length(), 1);
+      for (int f = 0; f < fieldCount; f++) {
+        cells.Add(row.PeekChild(f).GetScalarValue());
+      }
+      cells.EndRow();
+    }
+  }
+
+  //the cells of a table, by row and column
+  private interface Table {
+    int RowCount();
+
+    //the number of the row's cells, including the null ones
+    int RowLength(int row);
+
+    String Cell(int row, int column);
+  }
+
+  private static final class RowMajor implements Table {
+
+    private final String[][] _rows;
+
+    RowMajor(String[][] rows) {
+      _rows = rows;
+    }
+
+    public int RowCount() {
+      return _rows.length;
+    }
+
+    public int RowLength(int row) {
+      return _rows[row] == null ? 0 : _rows[row].length;
+    }
+
+    public String Cell(int row, int column) {
+      return _rows[row][column];
+    }
+  }
+
+  private static final class ColumnMajor implements Table {
+
+    private final String[][] _columns;
+    private final int _rowCount;
+
+    ColumnMajor(String[][] columns) {
+      _columns = columns;
+      int rowCount = 0;
+      for (String[] column : columns) {
+        rowCount = Math.max(rowCount, column == null ? 0 : column.length);
+      }
+      _rowCount = rowCount;
+    }
+
+    public int RowCount() {
+      return _rowCount;
+    }
+
+    public int RowLength(int row) {
+      return _columns.length;
+    }
+
+    public String Cell(int row, int column) {
+      String[] values = _columns[column];
+      return values == null || row >= values.length ? null : values[row];
+    }
+  }
+
+  //the same output as WriteTo() of the table's Rda tree, whose root and rows are written up to their last non-dummy element
+  private static String Encode(Table table) {
+    int rowCount = table.RowCount(), lastRow = -1;
+    boolean hasCells = false;
+    for (int r = 0; r < rowCount; r++) {
+      int rowLength = table.RowLength(r);
+      hasCells |= rowLength > 0;
+      if (LastValueIndex(table, r, rowLength) >= 0) {
+        lastRow = r;
+      }
+    }
+    if (!hasCells) {
+      return ""; //the Rda has no elements, i.e. it's a Dimension-0 RDA with no value
+    }
+
+    char[] delimiters = Arrays.copyOf(
+      Rda.RdaEncoding.DEFAULT_DELIMITER_CHARS,
+      2
+    );
+    Rda.RdaEncoding.DelimiterTable delimiterTable = new Rda.RdaEncoding.DelimiterTable(
+      delimiters
+    );
+    char escapeChar = Rda.RdaEncoding.DEFAULT_ESCAPE_CHAR;
+    StringBuilder result = new StringBuilder(16 + 8 * (lastRow + 1));
+    result
+      .append(delimiters[0])
+      .append(delimiters[1])
+      .append(escapeChar)
+      .append(delimiters[0]);
+    try {
+      for (int r = 0; r <= lastRow; r++) {
+        if (r > 0) {
+          result.append(delimiters[0]);
+        }
+        int lastValue = LastValueIndex(table, r, table.RowLength(r));
+        for (int c = 0; c <= lastValue; c++) {
+          if (c > 0) {
+            result.append(delimiters[1]);
+          }
+          Rda.WriteEscaped(
+            result,
+            table.Cell(r, c),
+            delimiterTable,
+            escapeChar,
+            false
+          );
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e); //not thrown by StringBuilder
+    }
+    return result.toString();
+  }
+
+  //the index of the row's last non-null cell, -1 if the row is a dummy
+  private static int LastValueIndex(Table table, int row, int rowLength) {
+    int last = rowLength - 1;
+    while (last >= 0 && table.Cell(row, last) == null) {
+      last--;
+    }
+    return last;
+  }
+}
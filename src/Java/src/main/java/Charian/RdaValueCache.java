@@ -0,0 +1,134 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * A bounded cache of the (short) leaf values made by parsing, so the repeated values of an RDA-string (e.g. status flags,
+ * units or country codes in every record) share a String, rather than each leaf having its own copy. It's opt-in, by
+ * Rda.Parse(String, RdaValueCache), and can be used for one parse or shared by the parses of a feed.
+ *
+ * The cache is keyed on the value's chars in the parse buffer, so a hit doesn't create a String at all. It has a fixed number
+ * of slots, a value goes to one of the two slots of its hash and replaces the older entry there, so it stays bounded without
+ * any eviction book-keeping. A value that is longer than the maximum length, or that needs un-escaping, isn't cached.
+ *
+ * It's safe to share across threads (e.g. concurrent parses): a slot holds an immutable String, so a racing update at worst
+ * loses an entry.
+ */
+public final class RdaValueCache {
+
+  public static final int DEFAULT_CAPACITY = 4096;
+  public static final int DEFAULT_MAX_VALUE_LENGTH = 32;
+  //the estimated size of a String with its char array, not counting the chars (which are 1 byte each for Latin-1 strings)
+  static final int STRING_OVERHEAD_BYTES = 40;
+
+  private final String[] _slots;
+  private final int _maxValueLength;
+  private final LongAdder _hits = new LongAdder();
+  private final LongAdder _misses = new LongAdder();
+  private final LongAdder _savedBytes = new LongAdder();
+
+  public RdaValueCache() {
+    this(DEFAULT_CAPACITY, DEFAULT_MAX_VALUE_LENGTH);
+  }
+
+  //the capacity is rounded up to a power of 2 (and at least 2)
+  public RdaValueCache(int capacity, int maxValueLength) {
+    if (capacity < 1 || maxValueLength < 0) {
+      throw new IllegalArgumentException(
+        String.format(
+          "Invalid capacity %d or maximum value length %d.",
+          capacity,
+          maxValueLength
+        )
+      );
+    }
+    _slots = new String[Math.max(2, Integer.highestOneBit(capacity - 1) << 1)];
+    _maxValueLength = maxValueLength;
+  }
+
+  /**
+   * Statistics
+   */
+
+  public long Hits() {
+    return _hits.sum();
+  }
+
+  public long Misses() {
+    return _misses.sum();
+  }
+
+  //the hits' share of the cached-value lookups, 0 if there weren't any
+  public double HitRate() {
+    long hits = Hits(), lookups = hits + Misses();
+    return lookups == 0 ? 0 : (double) hits / lookups;
+  }
+
+  //the estimated memory of the Strings that the hits didn't create
+  public long SavedBytes() {
+    return _savedBytes.sum();
+  }
+
+  public int Capacity() {
+    return _slots.length;
+  }
+
+  //removes the cached values, and resets the statistics
+  public void Clear() {
+    Arrays.fill(_slots, null);
+    _hits.reset();
+    _misses.reset();
+    _savedBytes.reset();
+  }
+
+  //the String of the chars[start, start + length), the cached one if there is one
+  String Value(char[] chars, int start, int length) {
+    if (length > _maxValueLength) {
+      return new String(chars, start, length);
+    }
+
+    int hash = 0;
+    for (int i = start; i < start + length; i++) {
+      hash = 31 * hash + chars[i];
+    }
+    int slot = (hash ^ (hash >>> 16)) & (_slots.length - 1);
+    String value = _slots[slot];
+    if (!Matches(value, chars, start, length)) {
+      String other = _slots[slot ^ 1];
+      if (Matches(other, chars, start, length)) {
+        value = other;
+      } else {
+        //a miss, the new value goes to the slot, and the slot's value to the other slot
+        _slots[slot ^ 1] = value;
+        _slots[slot] = value = new String(chars, start, length);
+        _misses.increment();
+        return value;
+      }
+    }
+    _hits.increment();
+    _savedBytes.add(STRING_OVERHEAD_BYTES + length);
+    return value;
+  }
+
+  private static boolean Matches(
+    String value,
+    char[] chars,
+    int start,
+    int length
+  ) {
+    if (value == null || value.length() != length) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (value.charAt(i) != chars[start + i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
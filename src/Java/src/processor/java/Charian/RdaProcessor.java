@@ -0,0 +1,482 @@
+// Copyright (c) 2022 Foldda Pty Ltd
+// Licensed under the GPL License -
+// https://github.com/foldda/charian/blob/main/LICENSE
+
+package Charian;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.NestingKind;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+
+/*
+ * Generates the "<ClassName>RdaCodec" class for each class with @RdaIndex fields (see RdaIndex).
+ *
+ * The codec's ToRda() and FromRda() are straight-line code, a statement per field in the order of the indexes, the same as
+ * hand-written code using Rda's API. FromRda() only reads (PeekRda()) the RDA, a missing or empty value keeps the field's
+ * current value.
+ */
+@SupportedAnnotationTypes("Charian.RdaIndex")
+public final class RdaProcessor extends AbstractProcessor {
+
+  //how a field's value is stored
+  private enum FieldKind {
+    STRING,
+    PRIMITIVE,
+    BOXED,
+    ENUM,
+    IRDA,
+    CODEC,
+  }
+
+  //the Rda setter and the parsing method of each primitive type, a null setter is SetValue() with String.valueOf()
+  private static final Map<TypeKind, String[]> PRIMITIVES = new HashMap<>();
+
+  static {
+    PRIMITIVES.put(TypeKind.INT, new String[] { "SetInt", "Integer.parseInt" });
+    PRIMITIVES.put(TypeKind.LONG, new String[] { "SetLong", "Long.parseLong" });
+    PRIMITIVES.put(
+      TypeKind.DOUBLE,
+      new String[] { "SetDouble", "Double.parseDouble" }
+    );
+    PRIMITIVES.put(TypeKind.SHORT, new String[] { "SetInt", "Short.parseShort" });
+    PRIMITIVES.put(TypeKind.BYTE, new String[] { "SetInt", "Byte.parseByte" });
+    PRIMITIVES.put(TypeKind.FLOAT, new String[] { null, "Float.parseFloat" });
+    PRIMITIVES.put(
+      TypeKind.BOOLEAN,
+      new String[] { null, "Boolean.parseBoolean" }
+    );
+    PRIMITIVES.put(TypeKind.CHAR, new String[] { null, null }); //the value's first char
+  }
+
+  @Override
+  public SourceVersion getSupportedSourceVersion() {
+    return SourceVersion.latestSupported();
+  }
+
+  @Override
+  public boolean process(
+    Set<? extends TypeElement> annotations,
+    RoundEnvironment roundEnv
+  ) {
+    Set<TypeElement> classes = new LinkedHashSet<>();
+    for (Element field : roundEnv.getElementsAnnotatedWith(RdaIndex.class)) {
+      classes.add((TypeElement) field.getEnclosingElement());
+    }
+    for (TypeElement type : classes) {
+      List<VariableElement> fields = IndexedFields(type);
+      if (Validate(type, fields)) {
+        try {
+          Generate(type, fields);
+        } catch (IOException e) {
+          Error(type, "Failed to write the RDA codec: " + e.getMessage());
+        }
+      }
+    }
+    return true;
+  }
+
+  /* helpers */
+
+  //the @RdaIndex fields of the class and its super-classes, in the order of the indexes
+  private static List<VariableElement> IndexedFields(TypeElement type) {
+    List<VariableElement> fields = new ArrayList<>();
+    for (
+      TypeElement t = type;
+      t != null;
+      t = t.getSuperclass().getKind() == TypeKind.DECLARED
+        ? (TypeElement) ((DeclaredType) t.getSuperclass()).asElement()
+        : null
+    ) {
+      for (VariableElement field : ElementFilter.fieldsIn(
+        t.getEnclosedElements()
+      )) {
+        if (field.getAnnotation(RdaIndex.class) != null) {
+          fields.add(field);
+        }
+      }
+    }
+    fields.sort(
+      Comparator.comparingInt(f -> f.getAnnotation(RdaIndex.class).value())
+    );
+    return fields;
+  }
+
+  private boolean Validate(TypeElement type, List<VariableElement> fields) {
+    boolean valid = true;
+    if (!type.getTypeParameters().isEmpty()) {
+      Error(type, "A generic class can't have @RdaIndex fields.");
+      valid = false;
+    } else if (type.getModifiers().contains(Modifier.PRIVATE)) {
+      Error(type, "A private class can't have @RdaIndex fields.");
+      valid = false;
+    }
+
+    Set<Integer> indexes = new LinkedHashSet<>();
+    for (VariableElement field : fields) {
+      int index = field.getAnnotation(RdaIndex.class).value();
+      Set<Modifier> modifiers = field.getModifiers();
+      String problem = null;
+      if (index < 0) {
+        problem = "The index can't be negative.";
+      } else if (!indexes.add(index)) {
+        problem = "The index " + index + " is used by another field.";
+      } else if (
+        modifiers.contains(Modifier.PRIVATE) ||
+        modifiers.contains(Modifier.STATIC) ||
+        modifiers.contains(Modifier.FINAL)
+      ) {
+        problem = "An @RdaIndex field can't be private, static or final.";
+      } else if (
+        !modifiers.contains(Modifier.PUBLIC) &&
+        !PackageOf(field).equals(PackageOf(type))
+      ) {
+        problem =
+          "An inherited @RdaIndex field from another package must be public.";
+      } else if (KindOf(field.asType()) == null) {
+        problem =
+          "An @RdaIndex field must be a String, a primitive, an enum, an IRda, or a class with @RdaIndex fields.";
+      }
+      if (problem != null) {
+        //reported on the field if it's in this class, or else on the class
+        Error(field.getEnclosingElement() == type ? field : type, problem);
+        valid = false;
+      }
+    }
+    return valid;
+  }
+
+  private FieldKind KindOf(TypeMirror type) {
+    if (type.getKind().isPrimitive()) {
+      return PRIMITIVES.containsKey(type.getKind()) ? FieldKind.PRIMITIVE : null;
+    } else if (type.getKind() != TypeKind.DECLARED) {
+      return null;
+    }
+
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String name = element.getQualifiedName().toString();
+    if (name.equals("java.lang.String")) {
+      return FieldKind.STRING;
+    } else if (IsBoxed(type)) {
+      return FieldKind.BOXED;
+    } else if (element.getKind() == ElementKind.ENUM) {
+      return FieldKind.ENUM;
+    } else if (
+      processingEnv
+        .getTypeUtils()
+        .isAssignable(
+          type,
+          processingEnv.getElementUtils().getTypeElement("Charian.IRda").asType()
+        )
+    ) {
+      return FieldKind.IRDA;
+    } else if (!IndexedFields(element).isEmpty()) {
+      return FieldKind.CODEC;
+    }
+    return null;
+  }
+
+  private boolean IsBoxed(TypeMirror type) {
+    try {
+      TypeKind unboxed = processingEnv.getTypeUtils().unboxedType(type).getKind();
+      return PRIMITIVES.containsKey(unboxed);
+    } catch (IllegalArgumentException e) {
+      return false; //not a boxed type
+    }
+  }
+
+  private void Generate(TypeElement type, List<VariableElement> fields)
+    throws IOException {
+    String packageName = PackageOf(type);
+    String codecName = CodecName(type);
+    String typeName = type.getQualifiedName().toString();
+    StringBuilder code = new StringBuilder();
+    if (!packageName.isEmpty()) {
+      code.append("package ").append(packageName).append(";\n\n");
+    }
+    code
+      .append("import Charian.Rda;\n\n")
+      .append("//generated by Charian.RdaProcessor from the @RdaIndex fields of ")
+      .append(typeName)
+      .append("\n")
+      .append(type.getModifiers().contains(Modifier.PUBLIC) ? "public " : "")
+      .append("final class ")
+      .append(codecName)
+      .append(" {\n\n")
+      .append("  private ")
+      .append(codecName)
+      .append("() {}\n\n");
+
+    //ToRda()
+    code
+      .append("  public static Rda ToRda(")
+      .append(typeName)
+      .append(" obj) {\n")
+      .append("    Rda rda = new Rda();\n")
+      .append("    try {\n");
+    for (VariableElement field : fields) {
+      AppendWrite(code, field);
+    }
+    code
+      .append("    } catch (Exception e) {\n")
+      .append(
+        "      throw new IllegalStateException(e); //not thrown, unless the nesting exceeds the encoding's delimiters\n"
+      )
+      .append("    }\n")
+      .append("    return rda;\n")
+      .append("  }\n\n");
+
+    //FromRda()
+    code
+      .append("  public static ")
+      .append(typeName)
+      .append(" FromRda(")
+      .append(typeName)
+      .append(" obj, Rda rda) {\n")
+      .append("    Rda field;\n")
+      .append("    String value;\n");
+    for (VariableElement field : fields) {
+      AppendRead(code, field);
+    }
+    code.append("    return obj;\n").append("  }\n").append("}\n");
+
+    String qualifiedName = packageName.isEmpty()
+      ? codecName
+      : packageName + "." + codecName;
+    try (
+      Writer writer = processingEnv
+        .getFiler()
+        .createSourceFile(qualifiedName, type)
+        .openWriter()
+    ) {
+      writer.write(code.toString());
+    }
+  }
+
+  private void AppendWrite(StringBuilder code, VariableElement field) {
+    int index = field.getAnnotation(RdaIndex.class).value();
+    String value = "obj." + field.getSimpleName();
+    TypeMirror type = field.asType();
+    switch (KindOf(type)) {
+      case STRING:
+        code.append(String.format("      rda.SetValue(%d, %s);\n", index, value));
+        break;
+      case PRIMITIVE:
+        code.append("      ").append(PrimitiveWrite(type, index, value));
+        break;
+      case BOXED:
+        code
+          .append(String.format("      if (%s != null) {\n", value))
+          .append("        ")
+          .append(
+            PrimitiveWrite(
+              processingEnv.getTypeUtils().unboxedType(type),
+              index,
+              value
+            )
+          )
+          .append("      }\n");
+        break;
+      case ENUM:
+        code.append(
+          String.format(
+            "      if (%s != null) {\n        rda.SetValue(%d, %s.name());\n      }\n",
+            value,
+            index,
+            value
+          )
+        );
+        break;
+      case IRDA:
+        code.append(
+          String.format(
+            "      if (%s != null) {\n        rda.SetRda(%d, %s.ToRda());\n      }\n",
+            value,
+            index,
+            value
+          )
+        );
+        break;
+      case CODEC:
+        code.append(
+          String.format(
+            "      if (%s != null) {\n        rda.SetRda(%d, %s.ToRda(%s));\n      }\n",
+            value,
+            index,
+            QualifiedCodecName(type),
+            value
+          )
+        );
+        break;
+    }
+  }
+
+  private static String PrimitiveWrite(
+    TypeMirror type,
+    int index,
+    String value
+  ) {
+    String setter = PRIMITIVES.get(type.getKind())[0];
+    return setter == null
+      ? String.format("rda.SetValue(%d, String.valueOf(%s));\n", index, value)
+      : String.format("rda.%s(%d, %s);\n", setter, index, value);
+  }
+
+  private void AppendRead(StringBuilder code, VariableElement field) {
+    int index = field.getAnnotation(RdaIndex.class).value();
+    String target = "obj." + field.getSimpleName();
+    TypeMirror type = field.asType();
+    FieldKind kind = KindOf(type);
+    switch (kind) {
+      case STRING:
+        code.append(
+          String.format(
+            "    if ((field = rda.PeekRda(%d)) != null) {\n      %s = field.GetScalarValue();\n    }\n",
+            index,
+            target
+          )
+        );
+        break;
+      case PRIMITIVE:
+      case BOXED:
+      case ENUM:
+        TypeKind primitive = kind == FieldKind.PRIMITIVE
+          ? type.getKind()
+          : kind == FieldKind.BOXED
+            ? processingEnv.getTypeUtils().unboxedType(type).getKind()
+            : null;
+        String parsed = primitive == null
+          ? ((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName() +
+          ".valueOf(value)"
+          : primitive == TypeKind.CHAR
+            ? "value.charAt(0)"
+            : PRIMITIVES.get(primitive)[1] + "(value)";
+        code.append(
+          String.format(
+            "    if (\n      (field = rda.PeekRda(%d)) != null &&\n      !(value = field.GetScalarValue()).isEmpty()\n    ) {\n      %s = %s;\n    }\n",
+            index,
+            target,
+            parsed
+          )
+        );
+        break;
+      case IRDA:
+      case CODEC:
+        //a dummy (i.e. a null field when it was stored) is skipped
+        code.append(
+          String.format(
+            "    if (\n      (field = rda.PeekRda(%d)) != null &&\n      (field.Dimension() > 0 || !field.GetScalarValue().isEmpty())\n    ) {\n",
+            index
+          )
+        );
+        TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+        String condition = "";
+        if (HasNoArgConstructor(element)) {
+          code.append(
+            String.format(
+              "      if (%s == null) {\n        %s = new %s();\n      }\n",
+              target,
+              target,
+              element.getQualifiedName()
+            )
+          );
+        } else {
+          condition = String.format("if (%s != null) ", target); //only an existing object is restored
+        }
+        code
+          .append("      ")
+          .append(condition)
+          .append(
+            kind == FieldKind.IRDA
+              ? String.format("%s.FromRda(field);\n", target)
+              : String.format(
+                "%s.FromRda(%s, field);\n",
+                QualifiedCodecName(type),
+                target
+              )
+          )
+          .append("    }\n");
+        break;
+    }
+  }
+
+  private static boolean HasNoArgConstructor(TypeElement type) {
+    if (
+      type.getModifiers().contains(Modifier.ABSTRACT) ||
+      type.getKind() != ElementKind.CLASS ||
+      (
+        type.getNestingKind() == NestingKind.MEMBER &&
+        !type.getModifiers().contains(Modifier.STATIC)
+      )
+    ) {
+      return false;
+    }
+    for (ExecutableElement constructor : ElementFilter.constructorsIn(
+      type.getEnclosedElements()
+    )) {
+      if (
+        constructor.getParameters().isEmpty() &&
+        !constructor.getModifiers().contains(Modifier.PRIVATE)
+      ) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  //the codec's name is the class's name, prefixed by its enclosing classes' names for a nested class
+  private static String CodecName(TypeElement type) {
+    StringBuilder name = new StringBuilder(type.getSimpleName());
+    for (
+      Element e = type.getEnclosingElement();
+      e instanceof TypeElement;
+      e = e.getEnclosingElement()
+    ) {
+      name.insert(0, e.getSimpleName() + "_");
+    }
+    return name.append("RdaCodec").toString();
+  }
+
+  private static String QualifiedCodecName(TypeMirror type) {
+    TypeElement element = (TypeElement) ((DeclaredType) type).asElement();
+    String packageName = PackageOf(element);
+    return packageName.isEmpty()
+      ? CodecName(element)
+      : packageName + "." + CodecName(element);
+  }
+
+  private static String PackageOf(Element element) {
+    while (!(element instanceof PackageElement)) {
+      element = element.getEnclosingElement();
+    }
+    return ((PackageElement) element).getQualifiedName().toString();
+  }
+
+  private void Error(Element element, String message) {
+    processingEnv
+      .getMessager()
+      .printMessage(Diagnostic.Kind.ERROR, message, element);
+  }
+}
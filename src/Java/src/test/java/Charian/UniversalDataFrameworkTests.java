@@ -3,6 +3,27 @@ package Charian;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.*;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.Spliterator;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
 import org.junit.jupiter.api.Test;
 
 public class UniversalDataFrameworkTests {
@@ -356,4 +377,1548 @@ public class UniversalDataFrameworkTests {
     Rda rda4 = Rda.Parse(s2f);
     assertEquals(s2, rda4.ToString());
   }
+
+  @Test
+  public void SinglePassParsingTest() throws Exception {
+    //trailing delimiters are trimmed, escaped lower-level delimiters are only un-escaped in the leaf values
+    Rda rda = Rda.Parse("|;,\\|a;b,c;|d\\;e,f|g\\\\h\\|i|");
+    assertEquals(3, rda.Length());
+    assertEquals(2, rda.GetRda(0).Length()); //"a;b,c;" - the trailing empty section is dropped
+    assertEquals("c", rda.GetValue(new int[] { 0, 1, 1 }));
+    assertEquals("d;e", rda.GetValue(new int[] { 1, 0, 0 }));
+    assertEquals("f", rda.GetValue(new int[] { 1, 0, 1 }));
+    assertEquals("g\\h|i", rda.GetValue(new int[] { 2 }));
+    assertEquals("|;,\\|a;b,c|d\\;e,f|g\\\\h\\|i", rda.ToString());
+
+    //the v1 and the v2 formatted expressions of the same RDA are parsed into the same content
+    Rda fromV1 = Rda.Parse(rda.ToString());
+    Rda fromV2 = Rda.Parse(rda.ToStringFormatted());
+    assertTrue(rda.ContentEqual(fromV1));
+    assertTrue(rda.ContentEqual(fromV2));
+    assertEquals(rda.ToString(), fromV2.ToString());
+
+    //every parsed leaf is at the bottom level, as set by the header section
+    Rda empty = Rda.Parse("|;,\\|");
+    assertEquals(3, empty.Dimension());
+    assertEquals("", empty.GetValue(new int[] { 0, 0, 0 }));
+  }
+
+  @Test
+  public void LazyParsingTest() throws Exception {
+    String original = "|;,\\|a;b,c\\,d|e\\|f;g|h";
+    Rda lazy = Rda.ParseLazy(original);
+    assertTrue(lazy.ContentEqual(Rda.Parse(original)));
+    assertEquals(original, lazy.ToString()); //unmodified, output as-is
+
+    lazy = Rda.ParseLazy(original);
+    assertEquals("c,d", lazy.GetValue(new int[] { 0, 1, 1 }));
+    assertEquals(";,\\;a;b,c\\,d", lazy.GetRda(0).ToString());
+    assertEquals("e|f", lazy.GetValue(new int[] { 1, 0 }));
+    assertEquals(original, lazy.ToString());
+
+    //modified branches are re-encoded
+    lazy.SetValue(new int[] { 1, 1 }, "G");
+    assertEquals("|;,\\|a;b,c\\,d|e\\|f;G|h", lazy.ToString());
+    lazy.GetRda(new int[] { 2, 0, 1 }).SetScalarValue("i");
+    assertEquals("|;,\\|a;b,c\\,d|e\\|f;G|h,i", lazy.ToString());
+
+    //non-canonical (e.g. trailing delimiters) and v2-formatted sources are re-encoded
+    assertEquals("|;\\|a;b|c", Rda.ParseLazy("|;\\|a;b;|c|").ToString());
+    Rda formatted = Rda.ParseLazy(Rda.Parse(original).ToStringFormatted());
+    assertEquals(original, formatted.ToString());
+  }
+
+  @Test
+  public void MappedFileParsingTest() throws Exception {
+    String original = "|;,\\|a;b,c\\,d|\u00e9t\u00e9\\|f;\u6771\u4eac|h";
+    Path file = Files.createTempFile("rda", ".txt");
+    try {
+      Files.write(file, original.getBytes(StandardCharsets.UTF_8));
+      Rda mapped = Rda.ParseLazy(file, StandardCharsets.UTF_8);
+      assertTrue(mapped.ContentEqual(Rda.Parse(original)));
+      assertEquals("c,d", mapped.GetValue(new int[] { 0, 1, 1 }));
+      assertEquals("\u00e9t\u00e9|f", mapped.GetValue(new int[] { 1, 0 }));
+      assertEquals("\u6771\u4eac", mapped.GetValue(new int[] { 1, 1 }));
+      assertEquals(original, mapped.ToString()); //unmodified, output as-is
+
+      mapped.SetValue(new int[] { 2, 1 }, "i");
+      assertEquals(
+        "|;,\\|a;b,c\\,d|\u00e9t\u00e9\\|f;\u6771\u4eac|h;i",
+        mapped.ToString()
+      );
+
+      //a v2-formatted file
+      Files.write(
+        file,
+        Rda.Parse(original).ToStringFormatted().getBytes(StandardCharsets.UTF_8)
+      );
+      assertEquals(
+        original,
+        Rda.ParseLazy(file, StandardCharsets.UTF_8).ToString()
+      );
+    } finally {
+      Files.delete(file);
+    }
+  }
+
+  @Test
+  public void ByteParsingTest() throws Exception {
+    String original = "|;,\\|a;b,c\\,d|\u00e9t\u00e9\\|f;\u6771\u4eac|h\ud83d\ude00";
+    byte[] utf8 = original.getBytes(StandardCharsets.UTF_8);
+    Rda rda = Rda.Parse(utf8);
+    assertTrue(rda.ContentEqual(Rda.Parse(original)));
+    assertEquals("\u00e9t\u00e9|f", rda.GetValue(new int[] { 1, 0 }));
+    assertEquals("h\ud83d\ude00", rda.GetValue(new int[] { 2, 0, 0 }));
+    assertArrayEquals(utf8, rda.ToBytes()); //unmodified, the bytes are copied as-is
+
+    rda.SetValue(new int[] { 2, 1 }, "\u6771|");
+    assertArrayEquals(
+      rda.ToString().getBytes(StandardCharsets.UTF_8),
+      rda.ToBytes()
+    );
+
+    //the bytes between the buffer's position and limit, and a v2-formatted payload
+    byte[] formatted = Rda
+      .Parse(original)
+      .ToStringFormatted()
+      .getBytes(StandardCharsets.UTF_8);
+    byte[] framed = new byte[formatted.length + 4];
+    System.arraycopy(formatted, 0, framed, 2, formatted.length);
+    ByteBuffer buffer = ByteBuffer.wrap(framed, 2, formatted.length);
+    assertEquals(original, Rda.Parse(buffer).ToString());
+    assertEquals(2, buffer.position());
+
+    //non-ASCII header chars and scalar values are decoded first
+    String nonAsciiHeader = "\u00a7;\\\u00a7a;b";
+    Rda decoded = Rda.Parse(nonAsciiHeader.getBytes(StandardCharsets.UTF_8));
+    assertEquals(nonAsciiHeader, decoded.ToString());
+    decoded = Rda.Parse("h\u00e9llo".getBytes(StandardCharsets.UTF_8));
+    assertEquals("h\u00e9llo", decoded.GetScalarValue());
+  }
+
+  @Test
+  public void DelimiterTableTest() throws Exception {
+    Rda.RdaEncoding.DelimiterTable table = new Rda.RdaEncoding.DelimiterTable(
+      new char[] { '|', '\u00a7', ';', '|' }
+    );
+    assertEquals(1, table.Level('|')); //the first level of a repeated delimiter
+    assertEquals(2, table.Level('\u00a7'));
+    assertEquals(3, table.Level(';'));
+    assertEquals(0, table.Level('a'));
+    assertEquals(0, table.Level('\u00e9'));
+
+    //a non-ASCII delimiter is parsed and escaped
+    String original = "|\u00a7;\\|a\u00a7b;c\\\u00a7d|e";
+    Rda rda = Rda.Parse(original);
+    assertEquals("c\u00a7d", rda.GetValue(new int[] { 0, 1, 1 }));
+    assertEquals(original, rda.ToString());
+    rda.SetValue(new int[] { 1, 0, 1 }, "f\u00a7;|g");
+    assertEquals(
+      "|\u00a7;\\|a\u00a7b;c\\\u00a7d|e;f\\\u00a7\\;\\|g",
+      rda.ToString()
+    );
+
+    //a value without escaping is returned as-is
+    String value = "a,b";
+    assertSame(value, Rda.UnEscape(value, table, '\\', false));
+    assertEquals("a|b\\", Rda.UnEscape("a\\|b\\\\", table, '\\', false));
+
+    //the table follows the extended delimiters
+    Rda deep = new Rda();
+    deep.SetValue(new int[] { 0, 0, 0, 0, 0, 1 }, "x,^:");
+    Rda parsed = Rda.Parse(deep.ToString());
+    assertEquals("x,^:", parsed.GetValue(new int[] { 0, 0, 0, 0, 0, 1 }));
+  }
+
+  @Test
+  public void ParallelParsingTest() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      //random payloads with runs of escape-chars, parsed in small chunks so the runs cross the chunk boundaries
+      Random random = new Random(10);
+      String payloadChars = "ab|;,\\\\\\ ";
+      for (String header : new String[] { "|\\|", "|;\\|", "|;,\\|" }) {
+        for (int n = 0; n < 200; n++) {
+          StringBuilder rdaString = new StringBuilder(header);
+          int length = random.nextInt(200);
+          for (int i = 0; i < length; i++) {
+            int charIndex = random.nextInt(payloadChars.length());
+            rdaString.append(payloadChars.charAt(charIndex));
+          }
+          AssertParallelParsing(rdaString.toString(), pool);
+        }
+      }
+
+      //trailing delimiters, v2-formatting, and a string too short to be parsed in chunks
+      AssertParallelParsing("|;\\|a;b|c;d;|e|||", pool);
+      Rda rda = Rda.Parse("|;,\\|a;b,c\\,d|e\\|f;g|h");
+      AssertParallelParsing(rda.ToStringFormatted(), pool);
+      Rda parsed = Rda.ParseParallel(rda.ToString(), pool);
+      assertEquals(rda.ToString(), parsed.ToString());
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  private static void AssertParallelParsing(
+    String rdaString,
+    ForkJoinPool pool
+  ) {
+    Rda expected = Rda.Parse(rdaString);
+    Rda parsed = Rda.ParseParallel(rdaString, pool, 7);
+    assertTrue(expected.ContentEqual(parsed), rdaString);
+    assertEquals(expected.ToString(), parsed.ToString(), rdaString);
+  }
+
+  @Test
+  public void ParallelWritingTest() throws Exception {
+    ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      Rda rda = new Rda();
+      for (int i = 0; i < 3000; i++) {
+        rda.SetValue(new int[] { i, 0 }, "a|" + i);
+        rda.SetValue(new int[] { i, 1 }, "b;" + i);
+      }
+      assertEquals(rda.ToString(), rda.ToString(pool));
+      assertEquals(rda.ToStringFormatted(), rda.ToStringFormatted(pool));
+
+      //a large branch under a small root, and a lazily parsed (partly modified) RDA
+      Rda wrapper = new Rda();
+      wrapper.SetRda(1, rda);
+      assertEquals(wrapper.ToString(), wrapper.ToString(pool));
+      Rda lazy = Rda.ParseLazy(wrapper.ToString());
+      lazy.SetValue(new int[] { 1, 2999, 1 }, "c,");
+      wrapper.SetValue(new int[] { 1, 2999, 1 }, "c,");
+      assertEquals(wrapper.ToString(), lazy.ToString(pool));
+
+      //a small RDA is written in sequence
+      Rda small = Rda.Parse("|;\\|a;b|c");
+      assertEquals(small.ToString(), small.ToString(pool));
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void FrozenRdaTest() throws Exception {
+    String original = "|;,\\|a;b,c\\,d|e\\|f;g|h";
+    Rda rda = Rda.ParseLazy(original);
+    rda.SetValue(new int[] { 4, 1 }, "i"); //[3] is a dummy
+    FrozenRda frozen = rda.Freeze();
+    assertEquals(rda.ToString(), frozen.ToString());
+    assertEquals(3, frozen.Dimension());
+    assertEquals(5, frozen.Length());
+    assertEquals("c,d", frozen.GetValue(new int[] { 0, 1, 1 }));
+    assertEquals("e|f", frozen.GetValue(1));
+    assertEquals("h", frozen.GetValue(new int[] { 2, 0, 0, 0 })); //index-0 of a leaf is the leaf itself
+    assertEquals("", frozen.GetValue(3));
+    assertEquals("i", frozen.GetRda(4).GetValue(1));
+    assertEquals(rda.GetRda(0).ToString(), frozen.GetRda(0).ToString());
+
+    //a branch is read by its address, without a view
+    assertEquals(2, frozen.Dimension(new int[] { 0 }));
+    assertEquals(2, frozen.Length(new int[] { 0, 1 }));
+    assertEquals(0, frozen.Length(new int[] { 2, 0, 0, 0 }));
+    assertEquals(0, frozen.Length(new int[] { 9 }));
+    assertEquals(0, frozen.Dimension(new int[] { 0, 5 }));
+
+    //the index-0 element of a leaf is the leaf at its own level
+    FrozenRda table = Rda.Parse("|;\\|a;b|c").Freeze();
+    assertEquals("c", table.GetRda(new int[] { 1, 0, 0 }).ToString());
+    assertEquals("c", table.GetRda(1).GetRda(0).GetRda(0).ToString());
+    assertEquals("c", table.GetRda(new int[] { 1, 0, 0 }).ToRda().GetScalarValue());
+
+    //out-of-range reads are empty, and don't change the snapshot
+    assertEquals("", frozen.GetValue(new int[] { 9, 9 }));
+    assertEquals("", frozen.GetValue(new int[] { 2, 1 }));
+    assertEquals("", frozen.GetValue(-1));
+    assertEquals(null, frozen.GetRda(new int[] { 0, 5 }));
+    assertEquals(5, frozen.Length());
+    assertEquals(rda.ToString(), frozen.ToString());
+
+    //the snapshot is independent of the RDA
+    rda.SetValue(new int[] { 0, 0 }, "changed");
+    assertEquals("a", frozen.GetValue(new int[] { 0, 0 }));
+    Rda thawed = frozen.ToRda();
+    thawed.SetValue(new int[] { 0, 0 }, "thawed");
+    assertEquals("a", frozen.GetValue(new int[] { 0, 0 }));
+
+    //a copied RDA has the snapshot's content and cached properties, and it's changed as any other Rda
+    Random random = new Random(11);
+    for (int n = 0; n < 200; n++) {
+      Rda tree = new Rda();
+      for (int i = random.nextInt(30); i > 0; i--) {
+        int[] address = new int[1 + random.nextInt(4)];
+        for (int a = 0; a < address.length; a++) {
+          address[a] = random.nextInt(4);
+        }
+        tree.SetValue(address, random.nextInt(3) == 0 ? null : "v" + i);
+      }
+      Rda copy = tree.Freeze().ToRda();
+      assertTrue(copy.ContentEqual(tree));
+      assertEquals(tree.hashCode(), copy.hashCode());
+      assertEquals(tree.Dimension(), copy.Dimension());
+      List<Rda> copyLeaves = copy.Leaves().collect(Collectors.toList());
+      List<Rda> treeLeaves = tree.Leaves().collect(Collectors.toList());
+      for (int i = 0; i < treeLeaves.size(); i++) {
+        assertEquals(treeLeaves.get(i).Level(), copyLeaves.get(i).Level());
+        assertEquals(treeLeaves.get(i).IsDummy(), copyLeaves.get(i).IsDummy());
+      }
+      copy.SetValue(new int[] { 0, 0, 0, 0, 0 }, "deep");
+      assertEquals(Math.max(tree.Dimension(), 5), copy.Dimension());
+      assertEquals("deep", Rda.Parse(copy.ToString()).GetValue(new int[] { 0, 0, 0, 0, 0 }));
+    }
+
+    //concurrent reads
+    Thread[] readers = new Thread[8];
+    String[] failures = new String[readers.length];
+    for (int t = 0; t < readers.length; t++) {
+      int reader = t;
+      readers[t] =
+        new Thread(() -> {
+          for (int n = 0; n < 10_000; n++) {
+            if (!frozen.GetValue(new int[] { 1, 0 }).equals("e|f")) {
+              failures[reader] = "read " + n;
+            }
+          }
+        });
+      readers[t].start();
+    }
+    for (Thread reader : readers) {
+      reader.join();
+    }
+    assertArrayEquals(new String[readers.length], failures);
+  }
+
+  @Test
+  public void CompactRdaTest() throws Exception {
+    String original = "|;,\\|a;b,c\\,d|e\\|f;g|h;;|";
+    CompactRda compact = CompactRda.Parse(original);
+    Rda rda = Rda.Parse(original);
+    assertEquals(rda.ToString(), compact.ToString());
+    assertEquals(3, compact.Dimension());
+    assertEquals(3, compact.Length());
+    assertEquals(2, compact.GetRda(2).Length()); //the trailing empty sections are dropped, as in Rda.Parse()
+    assertEquals("c,d", compact.GetValue(new int[] { 0, 1, 1 }));
+    assertEquals("e|f", compact.GetValue(1));
+    assertEquals("h", compact.GetValue(new int[] { 2, 0, 0, 0 })); //index-0 of a leaf is the leaf itself
+    assertEquals("", compact.GetValue(new int[] { 2, 1 }));
+    assertEquals(rda.GetRda(0).ToString(), compact.GetRda(0).ToString());
+    assertEquals(",\\,b,c\\,d", compact.GetRda(new int[] { 0, 1 }).ToString());
+
+    //out-of-range reads are empty
+    assertEquals("", compact.GetValue(new int[] { 9, 9 }));
+    assertEquals("", compact.GetValue(new int[] { 2, 0, 0, 1 }));
+    assertEquals(null, compact.GetRda(new int[] { 0, 5 }));
+
+    //a v2-formatted RDA-string, and an RDA-string without a header section
+    assertEquals(
+      rda.ToString(),
+      CompactRda.Parse(rda.ToStringFormatted()).ToString()
+    );
+    Rda thawed = CompactRda.Parse(original).ToRda();
+    assertTrue(rda.ContentEqual(thawed)); //including [2, 1], the empty section kept by the parser
+    assertEquals("abc|def", CompactRda.Parse("abc|def").GetValue(0));
+    assertEquals(0, CompactRda.Parse("abc|def").Dimension());
+
+    //a wide table
+    StringBuilder table = new StringBuilder("|;\\|");
+    for (int r = 0; r < 1000; r++) {
+      table.append(r == 0 ? "" : "|").append(r).append(";x\\;").append(r);
+    }
+    compact = CompactRda.Parse(table.toString());
+    assertEquals(1000, compact.Length());
+    assertEquals("x;999", compact.GetValue(new int[] { 999, 1 }));
+    assertEquals(Rda.Parse(table.toString()).ToString(), compact.ToString());
+
+    //ToRda() has the same tree as Rda.Parse(), and a branch's ToRda() is a root Rda of its content
+    String[] rdaStrings = { original, table.toString(), rda.ToStringFormatted(), "abc", "", "|;\\|;||" };
+    for (String rdaString : rdaStrings) {
+      Rda parsed = Rda.Parse(rdaString);
+      Rda copy = CompactRda.Parse(rdaString).ToRda();
+      assertTrue(parsed.ContentEqual(copy), rdaString);
+      assertEquals(parsed.ToString(), copy.ToString());
+      assertEquals(parsed.hashCode(), copy.hashCode());
+    }
+    Rda row = compact.GetRda(999).ToRda();
+    assertNull(row.Parent);
+    assertEquals(1, row.Dimension());
+    assertEquals("x;999", row.GetValue(1));
+    row.SetValue(new int[] { 2, 0 }, "changed");
+    assertEquals(2, row.Dimension());
+    assertEquals("x;999", compact.GetValue(new int[] { 999, 1 }));
+  }
+
+  @Test
+  public void PrimitiveAccessorsTest() throws Exception {
+    Rda rda = new Rda();
+    rda.SetInt(0, -42);
+    rda.SetLong(new int[] { 1, 0 }, Long.MIN_VALUE);
+    rda.SetDouble(2, 2.5);
+    rda.SetValue(3, "TRUE");
+    assertEquals("-42", rda.GetValue(0));
+    assertEquals(-42, rda.GetInt(0));
+    assertEquals(Long.MIN_VALUE, rda.GetLong(1, 0));
+    assertEquals(2.5, rda.GetDouble(2));
+    assertTrue(rda.GetBoolean(3));
+
+    //the values of a lazily parsed RDA are read from the source, and give the same results as an eagerly parsed RDA
+    String rdaString = rda.ToString() + "|+7|12345678901234567890|a\\|b|";
+    for (Rda parsed : new Rda[] {
+      Rda.Parse(rdaString),
+      Rda.ParseLazy(rdaString),
+      Rda.ParseLazy(Rda.Parse(rdaString).ToStringFormatted()),
+    }) {
+      assertEquals(-42, parsed.GetInt(0));
+      assertEquals(Long.MIN_VALUE, parsed.GetLong(1));
+      assertEquals(2.5, parsed.GetDouble(2));
+      assertTrue(parsed.GetBoolean(3));
+      assertFalse(parsed.GetBoolean(0));
+      assertEquals(7, parsed.GetInt(4));
+      assertThrows(NumberFormatException.class, () -> parsed.GetLong(5));
+      assertThrows(NumberFormatException.class, () -> parsed.GetInt(1));
+      assertThrows(NumberFormatException.class, () -> parsed.GetInt(6));
+      assertEquals(rda.GetValue(0), parsed.GetValue(0)); //not changed by the reads
+    }
+
+    //SetValue() sets a new child at the index, so a child that's held isn't changed
+    Rda child = rda.GetRda(1);
+    rda.SetValue(1, "5");
+    assertFalse(child == rda.GetRda(1));
+    assertEquals(Long.MIN_VALUE, child.GetLong(0));
+    assertEquals(5, rda.GetInt(1));
+
+    //the typed setters set a leaf child's value in place, and replace a composite child
+    Rda leaf = rda.GetRda(1);
+    rda.SetInt(1, 6);
+    assertTrue(leaf == rda.GetRda(1));
+    assertEquals("6", leaf.GetScalarValue());
+    rda.SetDouble(1, 0.5);
+    assertEquals(0.5, rda.GetDouble(1));
+    rda.SetRda(7, Rda.Parse("|\\|x|y"));
+    Rda composite = rda.GetRda(7);
+    rda.SetLong(7, 8);
+    assertFalse(composite == rda.GetRda(7));
+    assertEquals("y", composite.GetValue(1));
+    assertEquals(8, rda.GetLong(7));
+
+    //a lazily parsed double is read from the source, with the same result as Double.parseDouble()
+    String[] doubles = {
+      "0", "-0", "+1.5", "3.141592653589793", "0.1", ".5", "5.", "1e22", "1E-22", "123456789012345e-5",
+      "1234567890123456", "0.000000000000000000000001", "9007199254740993", "1e400", "-2.5e+3",
+    };
+    Rda numbers = Rda.ParseLazy("|\\|" + String.join("|", doubles) + "|1e|.|-|e5|1..2|NaN");
+    for (int i = 0; i < doubles.length; i++) {
+      assertEquals(Double.parseDouble(doubles[i]), numbers.GetDouble(i), doubles[i]);
+    }
+    for (int i = doubles.length; i < doubles.length + 6; i++) {
+      int index = i;
+      if (i == doubles.length + 5) {
+        assertTrue(Double.isNaN(numbers.GetDouble(index)));
+      } else {
+        assertThrows(NumberFormatException.class, () -> numbers.GetDouble(index));
+      }
+    }
+    Random random = new Random(3);
+    for (int n = 0; n < 10000; n++) {
+      double value = random.nextInt(1000000) / Math.pow(10, random.nextInt(12));
+      String valueString = random.nextBoolean()
+        ? Double.toString(value)
+        : String.format("%." + random.nextInt(10) + "f", -value);
+      assertEquals(
+        Double.parseDouble(valueString),
+        Rda.ParseLazy("|\\|" + valueString).GetDouble(0),
+        valueString
+      );
+    }
+  }
+
+  @Test
+  public void CursorAndPeekTest() throws Exception {
+    String tableString = "|;\\|1;a;10|2;b;20|3;c";
+    for (Rda table : new Rda[] {
+      Rda.Parse(tableString),
+      Rda.ParseLazy(tableString),
+    }) {
+      //peeking never creates Elements
+      assertEquals("b", table.PeekValue(1, 1));
+      assertEquals("", table.PeekValue(2, 2));
+      assertEquals(null, table.PeekRda(5));
+      assertEquals("c", table.PeekValue(2, 1, 0)); //index-0 of a leaf is the leaf itself
+      assertEquals(null, table.PeekRda(2, 1, 1));
+      assertEquals(3, table.Length());
+      assertEquals(2, table.GetRda(2).Length());
+      assertTrue(table.PeekRda() == table);
+      assertTrue(table.PeekRda((int[]) null) == table); //as GetRda((int[]) null)
+      assertEquals(table.GetScalarValue(), table.PeekValue((int[]) null));
+      assertTrue(table.GetRda(1, 2) == table.PeekRda(1, 2));
+
+      RdaCursor cursor = new RdaCursor(table);
+      long sum = 0;
+      StringBuilder letters = new StringBuilder();
+      for (boolean more = cursor.Down(0); more; more = cursor.Next()) {
+        assertEquals(1, cursor.Depth());
+        if (cursor.Down(2)) {
+          sum += cursor.GetLong();
+          cursor.Up();
+        }
+        assertTrue(cursor.Down(1));
+        letters.append(cursor.GetValue());
+        assertFalse(cursor.Down(0)); //a leaf has no Elements
+        assertTrue(cursor.Up());
+      }
+      assertEquals(30, sum);
+      assertEquals("abc", letters.toString());
+      assertEquals(2, cursor.Index());
+      assertEquals(3, cursor.GetInt());
+      assertTrue(cursor.Up());
+      assertFalse(cursor.Up());
+      assertFalse(cursor.Next());
+      assertTrue(cursor.Current() == table);
+      assertEquals(tableString, table.ToString()); //nothing is created
+
+      //the table is changed by the API, then iterated again
+      table.SetValue(new int[] { 2, 2 }, "30");
+      cursor.Reset(table);
+      sum = 0;
+      for (boolean more = cursor.Down(0); more; more = cursor.Next()) {
+        if (cursor.Down(2)) {
+          sum += cursor.GetInt();
+          cursor.Up();
+        }
+      }
+      assertEquals(60, sum);
+    }
+  }
+
+  enum Salutation {
+    MR,
+    MS,
+  }
+
+  static class Address implements IRda {
+
+    @RdaIndex(0)
+    String Lines;
+
+    @RdaIndex(1)
+    String Zip;
+
+    public Rda ToRda() {
+      return UniversalDataFrameworkTests_AddressRdaCodec.ToRda(this);
+    }
+
+    public IRda FromRda(Rda rda) {
+      return UniversalDataFrameworkTests_AddressRdaCodec.FromRda(this, rda);
+    }
+  }
+
+  static class Person {
+
+    @RdaIndex(0)
+    String FirstName;
+
+    @RdaIndex(1)
+    int Age = -1;
+
+    @RdaIndex(2)
+    Double Height;
+
+    @RdaIndex(3)
+    boolean Active;
+
+    @RdaIndex(4)
+    Salutation Title;
+
+    @RdaIndex(6)
+    Address Home;
+
+    String NotStored = "default";
+  }
+
+  static class Employee extends Person {
+
+    @RdaIndex(5)
+    long Id;
+
+    @RdaIndex(7)
+    Person Manager;
+
+    @RdaIndex(8)
+    char Grade;
+  }
+
+  //streams its properties, rather than building an Rda
+  static class StreamedAddress extends Address {
+
+    @Override
+    public void WriteTo(RdaObjectWriter writer) {
+      writer.WriteValue(Lines).WriteValue(Zip);
+    }
+
+    @Override
+    public IRda ReadFrom(RdaObjectReader reader) {
+      Lines = reader.ReadValue();
+      Zip = reader.ReadValue();
+      return this;
+    }
+  }
+
+  @Test
+  public void ObjectWriterAndReaderTest() throws Exception {
+    String[] values = { "a", "", null, "x|y", "1;2", "\\", "-3", "7.5", "q,r^s" };
+    Random random = new Random(17);
+    RdaObjectWriter writer = new RdaObjectWriter();
+    for (int round = 0; round < 300; round++) {
+      //the same random elements are written by the writer and into an Rda tree
+      writer.Reset();
+      Rda root = new Rda();
+      Rda[] containers = new Rda[8];
+      int[] counts = new int[8];
+      containers[0] = root;
+      int level = 0;
+      StringBuilder ops = new StringBuilder(); //v: a value, b: begin child, e: end child
+      List<String> written = new ArrayList<>();
+      for (int op = 0; op < 30; op++) {
+        int choice = random.nextInt(10);
+        if (choice < 2 && level < 7) {
+          Rda child = new Rda();
+          containers[level].SetRda(counts[level]++, child);
+          writer.BeginChild();
+          containers[++level] = child;
+          counts[level] = 0;
+          ops.append('b');
+        } else if (choice < 4 && level > 0) {
+          writer.EndChild();
+          level--;
+          ops.append('e');
+        } else {
+          String value = values[random.nextInt(values.length)];
+          containers[level].SetValue(counts[level]++, value);
+          writer.WriteValue(value);
+          written.add(value == null ? "" : value);
+          ops.append('v');
+        }
+      }
+      for (; level > 0; level--) {
+        writer.EndChild();
+        ops.append('e');
+      }
+      String rdaString = writer.ToString();
+      assertEquals(root.ToString(), rdaString);
+
+      //the values are read back in the same sequence
+      for (String source : new String[] { rdaString, root.ToStringFormatted() }) {
+        RdaObjectReader reader = new RdaObjectReader(source);
+        int next = 0;
+        for (char op : ops.toString().toCharArray()) {
+          if (op == 'b') {
+            reader.BeginChild();
+          } else if (op == 'e') {
+            reader.EndChild();
+          } else {
+            assertEquals(written.get(next++), reader.ReadValue(), source);
+          }
+        }
+      }
+    }
+
+    //numbers, and objects by streaming (overridden) and by ToRda()/FromRda() (default)
+    StreamedAddress streamed = new StreamedAddress();
+    streamed.Lines = "1|Main St";
+    streamed.Zip = "2000";
+    Address address = new Address();
+    address.Lines = "a;b";
+    writer.Reset().WriteInt(-42).WriteLong(1L << 40).WriteDouble(2.5);
+    writer.WriteBoolean(true).WriteObject(streamed).WriteObject(address);
+    writer.WriteObject(null).WriteValue("end");
+    Rda expected = new Rda();
+    expected.SetInt(0, -42);
+    expected.SetLong(1, 1L << 40);
+    expected.SetDouble(2, 2.5);
+    expected.SetValue(3, "true");
+    expected.SetRda(4, streamed.ToRda());
+    expected.SetRda(5, address.ToRda());
+    expected.SetValue(7, "end");
+    assertEquals(expected.ToString(), writer.ToString());
+
+    for (Rda rda : new Rda[] {
+      Rda.Parse(writer.ToString()),
+      Rda.ParseLazy(writer.ToString()),
+      Rda.Parse(writer.ToString().getBytes(StandardCharsets.UTF_8)),
+    }) {
+      RdaObjectReader reader = new RdaObjectReader(rda);
+      assertEquals(-42, reader.ReadInt());
+      assertEquals(1L << 40, reader.ReadLong());
+      assertEquals(2.5, reader.ReadDouble());
+      assertTrue(reader.ReadBoolean());
+      StreamedAddress restored = reader.ReadObject(new StreamedAddress());
+      assertEquals("1|Main St", restored.Lines);
+      assertEquals("2000", restored.Zip);
+      Address restoredAddress = reader.ReadObject(new Address());
+      assertEquals("a;b", restoredAddress.Lines);
+      assertEquals(null, restoredAddress.Zip); //the null (trailing) Zip isn't written
+      assertTrue(reader.HasNext());
+      reader.Skip();
+      assertEquals("end", reader.ReadValue());
+      assertFalse(reader.HasNext());
+      assertEquals("", reader.ReadValue());
+    }
+
+    //an RDA-string without a header section is a single value
+    RdaObjectReader reader = new RdaObjectReader("a|b");
+    reader.BeginChild();
+    assertEquals("a|b", reader.ReadValue());
+    reader.EndChild();
+    assertFalse(reader.HasNext());
+    assertEquals("", new RdaObjectWriter().ToString());
+    assertThrows(IllegalStateException.class, () -> new RdaObjectWriter().EndChild());
+
+    //an empty element that's ended by a higher-level delimiter (or the end) is there, as in the parsed tree
+    assertEquals(List.of(List.of("a", "b"), List.of(""), List.of("c", "d")), ReadRows("|;\\|a;b||c;d"));
+    assertEquals(List.of(List.of("")), ReadRows("|\\|"));
+    assertEquals(List.of(List.of("")), ReadRows("|;\\|"));
+    assertEquals(List.of(List.of(""), List.of("")), ReadRows("|;\\|;||")); //the trailing empty sections are dropped
+    for (String source : new String[] {
+      "|;\\|a;b||c;d",
+      "|;\\|;|;;|",
+      "|;,\\|a,;|,|;b,||",
+      "|;,\\|,;,",
+      "|\\|a||",
+    }) {
+      Rda rda = Rda.Parse(source);
+      List<List<String>> rows = new ArrayList<>();
+      for (int r = 0; r < Math.max(rda.Length(), 1); r++) {
+        Rda row = rda.PeekChild(r);
+        List<String> fields = new ArrayList<>();
+        for (int f = 0; f < Math.max(row.Length(), 1); f++) {
+          fields.add(row.PeekChild(f).GetScalarValue());
+        }
+        rows.add(fields);
+      }
+      assertEquals(rows, ReadRows(source), source);
+    }
+    reader = new RdaObjectReader("|;\\|a||");
+    reader.Skip();
+    reader.BeginChild();
+    assertEquals("", reader.ReadValue());
+    assertFalse(reader.HasNext());
+    reader.EndChild();
+    assertFalse(reader.HasNext());
+    reader.BeginChild(); //past the last element
+    assertFalse(reader.HasNext());
+    reader.EndChild();
+  }
+
+  //the values of the elements of each (top-level) element, read by an RdaObjectReader
+  private static List<List<String>> ReadRows(String rdaString) {
+    RdaObjectReader reader = new RdaObjectReader(rdaString);
+    List<List<String>> rows = new ArrayList<>();
+    while (reader.HasNext()) {
+      reader.BeginChild();
+      List<String> fields = new ArrayList<>();
+      while (reader.HasNext()) {
+        fields.add(reader.ReadValue());
+      }
+      reader.EndChild();
+      rows.add(fields);
+    }
+    return rows;
+  }
+
+  @Test
+  public void GeneratedCodecTest() throws Exception {
+    Employee employee = new Employee();
+    employee.FirstName = "Ann|Lee";
+    employee.Age = 42;
+    employee.Active = true;
+    employee.Title = Salutation.MS;
+    employee.Id = 1L << 40;
+    employee.Grade = 'B';
+    employee.Home = new Address();
+    employee.Home.Lines = "1, Main St";
+    employee.Home.Zip = "2000";
+    employee.Manager = new Person();
+    employee.Manager.FirstName = "Bob";
+    employee.NotStored = "changed";
+
+    //the same RDA as the hand-written code
+    Rda expected = new Rda();
+    expected.SetValue(0, "Ann|Lee");
+    expected.SetInt(1, 42);
+    expected.SetValue(3, "true");
+    expected.SetValue(4, "MS");
+    expected.SetLong(5, 1L << 40);
+    expected.SetRda(6, employee.Home.ToRda());
+    Rda manager = new Rda();
+    manager.SetValue(0, "Bob");
+    manager.SetInt(1, -1);
+    manager.SetValue(3, "false");
+    expected.SetRda(7, manager);
+    expected.SetValue(8, "B");
+    Rda rda = UniversalDataFrameworkTests_EmployeeRdaCodec.ToRda(employee);
+    assertEquals(expected.ToString(), rda.ToString());
+
+    Employee restored = UniversalDataFrameworkTests_EmployeeRdaCodec.FromRda(
+      new Employee(),
+      Rda.Parse(rda.ToString())
+    );
+    assertEquals("Ann|Lee", restored.FirstName);
+    assertEquals(42, restored.Age);
+    assertEquals(null, restored.Height); //not stored
+    assertTrue(restored.Active);
+    assertEquals(Salutation.MS, restored.Title);
+    assertEquals(1L << 40, restored.Id);
+    assertEquals('B', restored.Grade);
+    assertEquals("2000", restored.Home.Zip);
+    assertEquals("Bob", restored.Manager.FirstName);
+    assertEquals(-1, restored.Manager.Age);
+    assertEquals(null, restored.Manager.Home);
+    assertEquals("default", restored.NotStored);
+
+    //missing values keep the fields' values
+    restored = UniversalDataFrameworkTests_EmployeeRdaCodec.FromRda(
+      new Employee(),
+      Rda.Parse("Cat") //a Dimension-0 RDA is its own index-0 value
+    );
+    assertEquals("Cat", restored.FirstName);
+    assertEquals(-1, restored.Age);
+    assertEquals(null, restored.Title);
+    assertEquals(null, restored.Home);
+    assertThrows(
+      NumberFormatException.class,
+      () ->
+        UniversalDataFrameworkTests_PersonRdaCodec.FromRda(
+          new Person(),
+          Rda.Parse("|\\|Dan|7.5")
+        )
+    );
+  }
+
+  @Test
+  public void ValueCacheTest() throws Exception {
+    String[] codes = { "AU", "NZ", "US", "ACTIVE", "", "a very long value that isn't cached" };
+    StringBuilder table = new StringBuilder("|;\\|");
+    for (int r = 0; r < 1000; r++) {
+      table.append(r == 0 ? "" : "|").append(r);
+      for (int c = 0; c < 3; c++) {
+        table.append(';').append(codes[(r + c) % codes.length]);
+      }
+    }
+    table.append("|x\\;y;x\\;y"); //escaped values aren't cached
+    String tableString = table.toString();
+
+    RdaValueCache cache = new RdaValueCache(64, 8);
+    Rda rda = Rda.Parse(tableString, cache);
+    assertEquals(Rda.Parse(tableString).ToString(), rda.ToString());
+    assertTrue(rda.GetValue(new int[] { 0, 1 }) == rda.GetValue(new int[] { 6, 1 }));
+    assertTrue(rda.GetValue(new int[] { 0, 1 }) == rda.GetValue(new int[] { 5, 2 }));
+    assertFalse(rda.GetValue(new int[] { 3, 3 }) == rda.GetValue(new int[] { 9, 3 }));
+    assertFalse(rda.GetValue(new int[] { 1000, 0 }) == rda.GetValue(new int[] { 1000, 1 }));
+    assertEquals("x;y", rda.GetValue(new int[] { 1000, 1 }));
+
+    //the row numbers and the 2501 codes are looked up, except a row's trailing empty code (in 167 rows), the 499 long values aren't
+    assertEquals(1000 + 2501 - 167, cache.Hits() + cache.Misses());
+    assertTrue(cache.HitRate() > 0.6);
+    assertEquals(64, cache.Capacity());
+    assertTrue(cache.SavedBytes() >= cache.Hits() * RdaValueCache.STRING_OVERHEAD_BYTES);
+
+    //shared by another parse, the values are already cached
+    long misses = cache.Misses();
+    Rda other = Rda.Parse("|\\|AU|NZ", cache);
+    assertEquals(misses, cache.Misses());
+    assertTrue(other.GetValue(0) == rda.GetValue(new int[] { 996, 1 })); //the last "AU" in the table
+
+    cache.Clear();
+    assertEquals(0, cache.Hits() + cache.Misses());
+    assertEquals(0.0, cache.HitRate());
+    assertThrows(IllegalArgumentException.class, () -> new RdaValueCache(0, 8));
+  }
+
+  @Test
+  public void ReusableParserTest() throws Exception {
+    String[] messages = {
+      "|;\\|a;b;c|d;e\\;f;g|h",
+      "|;\\|x;y|z", //fewer elements, the extra ones are removed
+      "|;,\\|1;2,3;4|5;6,7,8;9|10;11;12", //a different header
+      "|;,\\|1;2,3;4|5;6,7,8;9|10;11;12|;", //a trailing delimiter
+      "a scalar value",
+      "",
+      "|;\\|\r\n  a;\r\n  \" b \"\r\n|\r\n  c", //v2-formatted
+      "|;\\|a;b;c|d;e\\;f;g|h",
+    };
+
+    RdaParser parser = new RdaParser();
+    Rda target = new Rda();
+    for (String message : messages) {
+      Rda expected = Rda.Parse(message);
+      assertTrue(parser.Parse(message, target) == target);
+      assertEquals(expected.ToString(), target.ToString());
+      assertEquals(expected.Dimension(), target.Dimension());
+      assertEquals(expected.Length(), target.Length());
+      assertEquals(expected.ToString(), parser.Parse(message).ToString());
+    }
+
+    //the elements (and the encoding) are re-used by the next message of the same shape
+    Rda row = target.GetRda(1);
+    Rda.RdaEncoding encoding = target.GlobalEncoding();
+    parser.Parse("|;\\|1;2;3|4;5;6|7", target);
+    assertTrue(row == target.GetRda(1));
+    assertTrue(row.Parent == target);
+    assertTrue(encoding == target.GlobalEncoding());
+    assertEquals("5", target.GetValue(new int[] { 1, 1 }));
+    assertEquals(1, target.GetRda(1).Dimension());
+
+    //a re-used tree can be modified, and it's still encoded the same as a parsed tree
+    target.SetValue(new int[] { 2, 1 }, "8|9");
+    assertEquals(
+      Rda.Parse("|;\\|1;2;3|4;5;6|7;8\\|9").ToString(),
+      target.ToString()
+    );
+
+    //the parser can share the leaf values via a value-cache
+    RdaValueCache cache = new RdaValueCache();
+    Rda first = new RdaParser(cache).Parse("|;\\|AU;NZ|AU");
+    assertTrue(first.GetValue(new int[] { 0, 0 }) == first.GetValue(1));
+
+    Rda child = target.GetRda(0);
+    assertThrows(IllegalArgumentException.class, () -> parser.Parse("x", child));
+  }
+
+  @Test
+  public void ContentEqualityAndHashTest() throws Exception {
+    String rdaString = "|;,\\|a;b,c;d|e|f;g\\|h";
+    Rda rda = Rda.Parse(rdaString);
+    Rda lazy = Rda.ParseLazy(rdaString);
+    Rda formatted = Rda.Parse(rda.ToStringFormatted());
+    Rda built = new Rda(); //as parsed, every section extends to the bottom level
+    built.SetValue(new int[] { 0, 0, 0 }, "a");
+    built.SetValue(new int[] { 0, 1, 0 }, "b");
+    built.SetValue(new int[] { 0, 1, 1 }, "c");
+    built.SetValue(new int[] { 0, 2, 0 }, "d");
+    built.SetValue(new int[] { 1, 0, 0 }, "e");
+    built.SetValue(new int[] { 2, 0, 0 }, "f");
+    built.SetValue(new int[] { 2, 1, 0 }, "g|h");
+    for (Rda same : new Rda[] { lazy, formatted, built }) {
+      assertTrue(rda.ContentEqual(same));
+      assertEquals(rda, same);
+      assertEquals(rda.hashCode(), same.hashCode());
+    }
+    assertNotEquals(rda, Rda.Parse("|;,\\|a;b,c;d|e|f;g"));
+    assertNotEquals(rda, Rda.Parse("|;,\\|a;b,c;d|e|f;g\\|h|i"));
+    assertNotEquals(rda, null);
+
+    //a duplicate message is found by the hash set
+    Set<Rda> messages = new HashSet<>();
+    assertTrue(messages.add(rda));
+    assertFalse(messages.add(Rda.Parse(rdaString)));
+
+    //the cached hash is reset when a (deep) value is changed, and the RDAs are equal again when it's changed back
+    int hash = built.hashCode();
+    built.SetValue(new int[] { 0, 1, 1 }, "x");
+    assertNotEquals(hash, built.hashCode());
+    assertNotEquals(rda, built);
+    built.GetRda(new int[] { 0, 1, 1 }).SetScalarValue("c");
+    assertEquals(hash, built.hashCode());
+    assertEquals(rda, built);
+
+    //over-indexing adds a dummy, which changes the length
+    built.GetRda(3);
+    assertNotEquals(rda, built);
+
+    //a refilled RDA is re-hashed
+    RdaParser parser = new RdaParser();
+    Rda target = parser.Parse(rdaString, new Rda());
+    assertEquals(rda.hashCode(), target.hashCode());
+    parser.Parse("|;,\\|a;b,c;d|e|f;g\\|i", target);
+    assertNotEquals(rda.hashCode(), target.hashCode());
+    assertEquals(Rda.Parse("|;,\\|a;b,c;d|e|f;g\\|i"), target);
+  }
+
+  @Test
+  public void DiffAndPatchTest() throws Exception {
+    //a price list, with a code, a price and the "tiers" of discounts in each row
+    Rda prices = new Rda();
+    for (int r = 0; r < 200; r++) {
+      prices.SetValue(new int[] { r, 0, 0 }, "P" + r);
+      prices.SetValue(new int[] { r, 1, 0 }, Integer.toString(100 + r));
+      prices.SetValue(new int[] { r, 2, 0 }, "5%");
+      prices.SetValue(new int[] { r, 2, 1 }, "10%");
+    }
+    Rda from = Rda.Parse(prices.ToString());
+
+    Rda to = Rda.Parse(prices.ToString());
+    to.SetValue(new int[] { 7, 1, 0 }, "99;50"); //a changed value, with a delimiter char
+    to.SetValue(new int[] { 42, 2, 0 }, "7%");
+    to.GetRda(new int[] { 42, 2 }).RemoveElements(1); //fewer tiers
+    to.GetRda(new int[] { 100, 2 }).SetScalarValue("none"); //a branch becomes a value
+    Rda newRow = Rda.Parse("|;\\|P200|300|1%;2%");
+    to.SetRda(200, newRow); //an added row
+
+    Rda patch = Rda.Diff(from, to);
+    assertEquals(8, patch.Length()); //the added row is set by its 4 values
+    assertEquals("T", patch.GetValue(new int[] { 2, 0 }));
+    String patchString = patch.ToString();
+    assertTrue(patchString.length() * 20 < to.ToString().length());
+
+    //the patch's RDA-string is applied to a parsed copy of the from-RDA
+    Rda updated = Rda.Parse(from.ToString());
+    updated.ApplyPatch(Rda.Parse(patchString));
+    assertEquals(to.ToString(), updated.ToString());
+    assertEquals("99;50", updated.GetValue(new int[] { 7, 1, 0 }));
+    assertEquals(to, updated);
+
+    assertEquals(0, Rda.Diff(from, Rda.Parse(from.ToString())).Length());
+    assertEquals("", Rda.Diff(from, from).ToString());
+
+    //the patched RDA has the to-RDA's shape, e.g. a trailing empty value, and a dummy
+    Rda empty = Rda.Parse("|;,\\|");
+    Rda ragged = Rda.Parse("|;,\\|ab,|xx,,");
+    empty.ApplyPatch(Rda.Parse(Rda.Diff(empty, ragged).ToString()));
+    assertEquals("|;,\\|ab|xx,", empty.ToString());
+    assertTrue(empty.ContentEqual(ragged));
+    Rda withDummy = new Rda();
+    withDummy.SetValue(new int[] { 0, 2 }, "c");
+    withDummy.SetValue(new int[] { 1 }, null);
+    Rda patched = Rda.Parse("x");
+    patched.ApplyPatch(Rda.Parse(Rda.Diff(patched, withDummy).ToString()));
+    assertEquals(withDummy.ToString(), patched.ToString());
+    assertTrue(patched.GetRda(new int[] { 0, 1 }).IsDummy());
+
+    //random pairs of parsed and of built RDAs, including ragged dimensions, dummies and empty values
+    Random random = new Random(11);
+    String[] values = { null, "", "a", "b|c" };
+    for (int n = 0; n < 2000; n++) {
+      Rda[] pair = new Rda[2];
+      for (int k = 0; k < 2; k++) {
+        if (n % 2 == 0) {
+          StringBuilder rdaString = new StringBuilder(
+            new String[] { "|;\\|", "|;,\\|", "|\\|", "" }[random.nextInt(4)]
+          );
+          for (int i = random.nextInt(10); i > 0; i--) {
+            rdaString.append("ab|;,".charAt(random.nextInt(5)));
+          }
+          pair[k] = Rda.Parse(rdaString.toString());
+        } else {
+          pair[k] = new Rda();
+          for (int i = random.nextInt(6); i > 0; i--) {
+            int[] address = new int[1 + random.nextInt(3)];
+            for (int d = 0; d < address.length; d++) {
+              address[d] = random.nextInt(3);
+            }
+            pair[k].SetValue(address, values[random.nextInt(values.length)]);
+          }
+        }
+      }
+      String fromString = pair[0].ToString();
+      pair[0].ApplyPatch(Rda.Parse(Rda.Diff(pair[0], pair[1]).ToString()));
+      assertTrue(pair[0].ContentEqual(pair[1]), fromString + " to " + pair[1]);
+    }
+
+    Rda unknown = Rda.Parse("|;\\|X;1");
+    assertThrows(IllegalArgumentException.class, () -> from.ApplyPatch(unknown));
+  }
+
+  @Test
+  public void PathQueryTest() throws Exception {
+    //rows of an id, a country code and the "tags"
+    String[] countries = { "AU", "NZ", "US" };
+    Rda table = new Rda();
+    for (int r = 0; r < 150; r++) {
+      table.SetValue(new int[] { r, 0, 0 }, "id" + r);
+      table.SetValue(new int[] { r, 1, 0 }, countries[r % 3]);
+      for (int t = 0; t < r % 4; t++) {
+        table.SetValue(new int[] { r, 2, t }, "t" + t);
+      }
+    }
+    String tableString = table.ToString();
+    Rda rda = Rda.Parse(tableString);
+
+    RdaQuery column = RdaQuery.Compile("*.1");
+    List<String> codes = new ArrayList<>();
+    column.SelectValues(rda).forEach(codes::add);
+    assertEquals(150, codes.size());
+    assertEquals("NZ", codes.get(1));
+
+    //a slice, and a wildcard over elements of different lengths
+    RdaQuery tags = RdaQuery.Compile("0..99.2.*");
+    List<String> values = new ArrayList<>();
+    for (Rda match : tags.Select(rda)) {
+      values.add(match.GetScalarValue());
+    }
+    assertEquals(25 * (1 + 2 + 3), values.size()); //the rows without tags have no match
+    assertEquals(List.of("t0", "t0", "t1", "t0"), values.subList(0, 4));
+
+    //the same matches are read from the RDA-string, or from a lazily parsed RDA
+    RdaQuery[] queries = {
+      column,
+      tags,
+      RdaQuery.Compile("3"),
+      RdaQuery.Compile(""),
+    };
+    for (RdaQuery query : queries) {
+      List<String> expected = new ArrayList<>();
+      List<String> read = new ArrayList<>(), lazy = new ArrayList<>();
+      List<String> streamed = new ArrayList<>();
+      query.SelectValues(rda).forEach(expected::add);
+      query.ForEachValue(tableString, read::add);
+      query.SelectValues(Rda.ParseLazy(tableString)).forEach(lazy::add);
+      query.ForEachValue(new RdaReader(new StringReader(tableString)), streamed::add);
+      assertEquals(expected, read);
+      assertEquals(expected, lazy);
+      assertEquals(expected, streamed);
+    }
+
+    //a query never creates dummies
+    String before = rda.ToString();
+    assertNull(RdaQuery.Compile("200.0").SelectFirst(rda));
+    assertFalse(RdaQuery.Compile("5.9.*").Select(rda).iterator().hasNext());
+    assertEquals(before, rda.ToString());
+    assertEquals(150, rda.Length());
+    assertTrue(RdaQuery.Compile("").SelectFirst(rda) == rda);
+    Rda first = RdaQuery.Compile("7.0.0.0").SelectFirst(rda); //as GetRda()
+    assertEquals("id7", first.GetScalarValue());
+
+    //an equality index of the rows by the country code
+    RdaQuery.Index byCountry = RdaQuery.Compile("*").BuildIndex(rda, "1");
+    assertEquals(3, byCountry.KeyCount());
+    assertEquals(50, byCountry.Find("US").size());
+    assertEquals("id2", byCountry.FindFirst("US").GetValue(0));
+    assertTrue(byCountry.Find("FR").isEmpty());
+    assertNull(byCountry.FindFirst("FR"));
+    RdaQuery.Index byTag = RdaQuery.Compile("*").BuildIndex(rda, "2.*");
+    assertEquals(37 + 37, byTag.Find("t1").size()); //the rows with 2 or 3 tags
+
+    String[] invalidPaths = { ".", "1.", "a", "*x", "2..1", "1...2", "9999999999" };
+    for (String path : invalidPaths) {
+      assertThrows(IllegalArgumentException.class, () -> RdaQuery.Compile(path));
+    }
+
+    //the values read from the RDA-string are the same as selected from its parsed tree, including the empty sections
+    List<String> emptyRows = new ArrayList<>();
+    RdaQuery.Compile("*.0").ForEachValue("|;\\|a;b||c;d", emptyRows::add);
+    assertEquals(List.of("a", "", "c"), emptyRows);
+    String[] paths = { "", "*", "1", "*.0", "*.1", "0..1.*", "*.*.*", "2.0.0" };
+    String chars = "ab|;,\\";
+    Random random = new Random(7);
+    for (int n = 0; n < 5000; n++) {
+      StringBuilder rdaString = new StringBuilder(
+        new String[] { "|;\\|", "|;,\\|", "|\\|", "" }[n % 4]
+      );
+      for (int i = random.nextInt(10); i > 0; i--) {
+        rdaString.append(chars.charAt(random.nextInt(chars.length())));
+      }
+      Rda parsed = Rda.Parse(rdaString.toString());
+      for (String path : paths) {
+        RdaQuery query = RdaQuery.Compile(path);
+        List<String> selected = new ArrayList<>(), streamed = new ArrayList<>();
+        List<String> events = new ArrayList<>();
+        query.SelectValues(parsed).forEach(selected::add);
+        query.ForEachValue(rdaString.toString(), streamed::add);
+        query.ForEachValue(new RdaReader(new StringReader(rdaString.toString())), events::add);
+        assertEquals(selected, streamed, rdaString + " " + path);
+        assertEquals(selected, events, rdaString + " " + path);
+      }
+    }
+  }
+
+  @Test
+  public void StreamViewsTest() throws Exception {
+    Rda table = new Rda();
+    for (int r = 0; r < 1000; r++) {
+      for (int c = 0; c < 5; c++) {
+        table.SetValue(new int[] { r, c }, r + "," + c);
+      }
+    }
+    String tableString = table.ToString();
+    Rda rda = Rda.Parse(tableString);
+
+    assertEquals(1000, rda.Children().count());
+    assertEquals(0, Rda.Parse("a").Children().count());
+
+    //the children are sized, and split into sized halves
+    Spliterator<Rda> children = rda.Children().spliterator();
+    assertTrue(children.hasCharacteristics(Spliterator.SIZED));
+    assertTrue(children.hasCharacteristics(Spliterator.SUBSIZED));
+    assertEquals(1000, children.getExactSizeIfKnown());
+    Spliterator<Rda> firstChildren = children.trySplit();
+    assertEquals(500, firstChildren.getExactSizeIfKnown());
+    assertEquals(500, children.getExactSizeIfKnown());
+    assertTrue(firstChildren.tryAdvance(child -> assertEquals("0,0", child.GetScalarValue())));
+    assertEquals(499, firstChildren.getExactSizeIfKnown());
+    assertEquals(
+      1000,
+      Rda.ParseLazy(tableString).Children().spliterator().getExactSizeIfKnown()
+    );
+    assertEquals(
+      rda.Children().map(Rda::GetScalarValue).collect(Collectors.toList()),
+      rda.Children().parallel().map(Rda::GetScalarValue).collect(Collectors.toList())
+    );
+
+    //the leaves, and the values at a depth, are the same in parallel, and as selected by a query
+    List<String> leaves = rda.Leaves().map(Rda::GetScalarValue).collect(Collectors.toList());
+    assertEquals(5000, leaves.size());
+    assertEquals("999,4", leaves.get(4999));
+    assertEquals(leaves, rda.Leaves().parallel().map(Rda::GetScalarValue).collect(Collectors.toList()));
+    assertEquals(leaves, rda.ValuesAt(2).parallel().collect(Collectors.toList()));
+    assertEquals(leaves, rda.ValuesAt(3).collect(Collectors.toList())); //a leaf is its own index-0 element
+    assertEquals(leaves, Rda.ParseLazy(tableString).Leaves().parallel().map(Rda::GetScalarValue).collect(Collectors.toList()));
+    List<String> rowValues = new ArrayList<>();
+    RdaQuery.Compile("*").SelectValues(rda).forEach(rowValues::add);
+    assertEquals(rowValues, rda.ValuesAt(1).collect(Collectors.toList()));
+    assertEquals(List.of("0,0"), rda.ValuesAt(0).collect(Collectors.toList()));
+    assertEquals(List.of("a"), Rda.Parse("a").Leaves().map(Rda::GetScalarValue).collect(Collectors.toList()));
+    assertThrows(IllegalArgumentException.class, () -> rda.ValuesAt(-1));
+
+    //a wide RDA is split evenly, also when it's wide below an only element
+    Spliterator<Rda> rows = new RdaSpliterator(rda, RdaSpliterator.LEAVES);
+    Spliterator<Rda> firstRows = rows.trySplit();
+    assertEquals(500, firstRows.estimateSize());
+    assertEquals(500, rows.estimateSize());
+    Rda wrapped = new Rda();
+    wrapped.SetRda(0, rda);
+    Spliterator<Rda> wrappedRows = new RdaSpliterator(wrapped, 2);
+    assertEquals(500, wrappedRows.trySplit().estimateSize());
+    assertEquals(leaves, wrapped.ValuesAt(3).parallel().collect(Collectors.toList()));
+
+    //the values array of the elements
+    assertArrayEquals(new String[] { "0,0", "0,1", "0,2", "0,3", "0,4" }, rda.GetRda(0).GetElementsValueArray());
+  }
+
+  @Test
+  public void TableFastPathTest() throws Exception {
+    //a jagged table, with null (dummy) fields and values that need escaping
+    String[][] rows = new String[][] {
+      { "a", "b|c", "d;e\\f" },
+      {},
+      { null, " x ", null },
+      { "", "" },
+      null,
+      { "g" },
+      { null },
+    };
+    Rda rda = new Rda();
+    for (int r = 0; r < rows.length; r++) {
+      for (int c = 0; rows[r] != null && c < rows[r].length; c++) {
+        rda.SetValue(new int[] { r, c }, rows[r][c]);
+      }
+    }
+    String rdaString = rda.ToString();
+    assertEquals(rdaString, Rda.EncodeTable(rows));
+
+    String[][] columns = new String[3][rows.length];
+    for (int r = 0; r < rows.length; r++) {
+      for (int c = 0; rows[r] != null && c < rows[r].length; c++) {
+        columns[c][r] = rows[r][c];
+      }
+    }
+    assertEquals(rdaString, Rda.EncodeTableColumns(columns));
+    assertEquals("", Rda.EncodeTable(new String[][] { {}, null }));
+
+    //the parsed fields are the values of the parsed Rda tree's rows' elements
+    for (String table : new String[] {
+      rdaString,
+      rda.ToStringFormatted(),
+      rdaString + "|",
+      rdaString + ";",
+      "|;\\|",
+      "|;\\|a;b;|c",
+      "no header",
+      "|;,\\|a,b;c|d",
+    }) {
+      Rda parsed = Rda.Parse(table);
+      String[][] parsedRows = Rda.ParseTable(table);
+      assertEquals(Math.max(parsed.Length(), 1), parsedRows.length);
+      for (int r = 0; r < parsedRows.length; r++) {
+        Rda row = parsed.PeekChild(r);
+        assertEquals(Math.max(row.Length(), 1), parsedRows[r].length);
+        for (int c = 0; c < parsedRows[r].length; c++) {
+          assertEquals(row.PeekChild(c).GetScalarValue(), parsedRows[r][c]);
+        }
+      }
+    }
+    assertEquals("d;e\\f", Rda.ParseTable(rdaString)[0][2]);
+    assertArrayEquals(new String[] { "a", "c" }, Rda.ParseTable("|;,\\|a,b;c|d")[0]); //a 3-level field's value is its left-most value
+
+    //the columns of the parsed table, a row's missing fields are null
+    String[][] parsedColumns = Rda.ParseTableColumns("|;\\|a;b;c|d|e;f");
+    assertArrayEquals(new String[] { "a", "d", "e" }, parsedColumns[0]);
+    assertArrayEquals(new String[] { "b", null, "f" }, parsedColumns[1]);
+    assertArrayEquals(new String[] { "c", null, null }, parsedColumns[2]);
+
+    //an encoded table is parsed back into the same values
+    String[][] wide = new String[500][8];
+    for (int r = 0; r < wide.length; r++) {
+      for (int c = 0; c < wide[r].length; c++) {
+        wide[r][c] = r + (c % 3 == 0 ? "|" : c % 3 == 1 ? ";" : "\\") + c;
+      }
+    }
+    String wideString = Rda.EncodeTable(wide);
+    assertArrayEquals(wide, Rda.ParseTable(wideString));
+    assertEquals(Rda.Parse(wideString).ToString(), wideString);
+  }
+
+  @Test
+  public void FramedMessagesTest() throws Exception {
+    //the server replies with the request's element count, and the request's first value
+    RdaFrameServer.Handler handler = request -> {
+      Rda reply = new Rda();
+      reply.AddValue(Integer.toString(request.Length()));
+      reply.AddValue(request.GetScalarValue());
+      return reply;
+    };
+    try (
+      RdaFrameServer server = RdaFrameServer.Start(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        handler
+      );
+      RdaFrameChannel client = new RdaFrameChannel(
+        SocketChannel.open(server.LocalAddress())
+      )
+    ) {
+      //the requests are pipelined, including a scalar, non-ASCII values, and frames larger than the buffers
+      Rda large = new Rda();
+      for (int i = 0; i < 50_000; i++) {
+        large.SetValue(new int[] { i, 0 }, "row-" + i + "-\u00e9\u4e2d|;");
+      }
+      String[] requests = new String[] {
+        "|;\\|a;b|c",
+        "scalar",
+        "|;\\|\u00fcber;\u00e7a|\ud83d\ude00",
+        large.ToString(),
+        "",
+      };
+      for (String request : requests) {
+        client.WriteString(request);
+      }
+      for (String request : requests) {
+        Rda expected = Rda.Parse(request);
+        Rda reply = client.Read();
+        assertEquals(Integer.toString(expected.Length()), reply.GetValue(0));
+        assertEquals(expected.GetScalarValue(), reply.GetValue(1));
+      }
+
+      //the frames are parsed into the same target
+      Rda target = new Rda();
+      client.Write(large);
+      assertSame(target, client.Read(target));
+      assertEquals("50000", target.GetValue(0));
+      client.WriteString("|;\\|x");
+      assertEquals("|\\|1|x", client.ReadString());
+    }
+
+    //a frame that's longer than the max frame length is rejected, at both ends
+    try (
+      RdaFrameServer server = RdaFrameServer.Start(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        request -> { //the reply is the request's value twice
+          Rda reply = new Rda();
+          reply.AddValue(request.GetScalarValue());
+          reply.AddValue(request.GetScalarValue());
+          return reply;
+        }
+      );
+      RdaFrameChannel client = new RdaFrameChannel(
+        SocketChannel.open(server.LocalAddress()),
+        16,
+        null
+      )
+    ) {
+      assertThrows(
+        IOException.class,
+        () -> client.WriteString("|;\\|a value that's too long")
+      );
+      client.WriteString("|\\|abc");
+      assertEquals("|\\|abc|abc", client.ReadString());
+      client.WriteString("|\\|abcdefgh");
+      assertThrows(IOException.class, client::ReadString);
+    }
+
+    //a message that can't fit in a frame is rejected before anything is written, and its encoding is bounded by the max
+    try (
+      ServerSocketChannel listener = ServerSocketChannel.open().bind(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+      );
+      SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+      RdaFrameChannel accepted = new RdaFrameChannel(listener.accept())
+    ) {
+      RdaFrameChannel frames = new RdaFrameChannel(client, 100_000, null);
+      assertThrows(IOException.class, () -> frames.WriteString("x".repeat(100_001)));
+      assertThrows(IOException.class, () -> frames.WriteString("\u4e2d".repeat(50_000)));
+      frames.WriteString("\u4e2d".repeat(30_000));
+      assertEquals("\u4e2d".repeat(30_000), accepted.ReadString());
+    }
+
+    //a failed connection (a handler's exception, or a malformed frame) is closed, and its failure is passed on
+    BlockingQueue<Exception> failures = new LinkedBlockingQueue<>();
+    try (
+      RdaFrameServer server = RdaFrameServer.Start(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+        request -> {
+          if (request.GetScalarValue().equals("fail")) {
+            throw new IllegalStateException("handler failed");
+          }
+          return request;
+        },
+        (clientAddress, cause) -> {
+          assertNotNull(clientAddress);
+          failures.add(cause);
+        }
+      );
+      RdaFrameChannel client = new RdaFrameChannel(
+        SocketChannel.open(server.LocalAddress())
+      );
+      SocketChannel malformed = SocketChannel.open(server.LocalAddress())
+    ) {
+      client.WriteString("ok");
+      assertEquals("ok", client.ReadString());
+      client.WriteString("fail");
+      assertNull(client.ReadString());
+      Exception failure = failures.poll(5, TimeUnit.SECONDS);
+      assertTrue(failure instanceof IllegalStateException);
+      assertEquals("handler failed", failure.getMessage());
+
+      malformed.write(ByteBuffer.wrap(new byte[] { -1, -1, -1, -1 }));
+      assertTrue(failures.poll(5, TimeUnit.SECONDS) instanceof IOException);
+      assertTrue(server.IsOpen());
+      assertNull(server.AcceptFailure());
+    }
+
+    //closing the server waits for the running handlers
+    CountDownLatch handling = new CountDownLatch(1);
+    AtomicBoolean handled = new AtomicBoolean();
+    RdaFrameServer server = RdaFrameServer.Start(
+      new InetSocketAddress(InetAddress.getLoopbackAddress(), 0),
+      request -> {
+        handling.countDown();
+        Thread.sleep(200);
+        handled.set(true);
+        return request;
+      }
+    );
+    try (
+      RdaFrameChannel client = new RdaFrameChannel(
+        SocketChannel.open(server.LocalAddress())
+      )
+    ) {
+      client.WriteString("slow");
+      assertTrue(handling.await(5, TimeUnit.SECONDS));
+      server.close();
+      assertTrue(handled.get());
+      assertFalse(server.IsOpen());
+    }
+
+    //the end of the stream, between the frames and in a frame
+    try (
+      ServerSocketChannel listener = ServerSocketChannel.open().bind(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+      );
+      SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+      RdaFrameChannel accepted = new RdaFrameChannel(listener.accept())
+    ) {
+      new RdaFrameChannel(client).WriteString("|;\\|a");
+      client.write(ByteBuffer.wrap(new byte[] { 0, 0, 0, 9, '|' }));
+      client.shutdownOutput();
+      assertEquals("|;\\|a", accepted.ReadString());
+      assertThrows(EOFException.class, accepted::Read);
+    }
+    try (
+      ServerSocketChannel listener = ServerSocketChannel.open().bind(
+        new InetSocketAddress(InetAddress.getLoopbackAddress(), 0)
+      );
+      SocketChannel client = SocketChannel.open(listener.getLocalAddress());
+      RdaFrameChannel accepted = new RdaFrameChannel(listener.accept())
+    ) {
+      client.shutdownOutput();
+      assertNull(accepted.Read());
+    }
+  }
+
+  @Test
+  public void WideRdaBuildingTest() throws Exception {
+    //the building time is measured by RdaBuildBenchmark, the cached dimension, level and encoding are checked here
+    int elementCount = 100_000;
+    Rda rda = new Rda();
+    for (int i = 0; i < elementCount; i++) {
+      rda.GetRda(i / 10).AddValue(String.valueOf(i)); //10 values per row
+    }
+    String encoded = rda.ToString();
+
+    assertEquals(2, rda.Dimension());
+    assertEquals(elementCount / 10, rda.Length());
+    assertEquals(1, rda.GetRda(0).Dimension());
+    assertEquals(
+      String.valueOf(elementCount - 1),
+      rda.GetValue(new int[] { elementCount / 10 - 1, 9 })
+    );
+    assertTrue(encoded.startsWith("|;\\|0;1;2"));
+    assertEquals(encoded, Rda.Parse(encoded).ToString());
+  }
+
+  @Test
+  public void StreamingWriterTest() throws Exception {
+    Rda rda = Rda.Parse("|;,\\|a;b,c\\,d|e\\|f;g|h");
+    rda.SetValue(new int[] { 3, 1 }, "\u00e9t\u00e9 | \u6771\u4eac");
+
+    StringWriter writer = new StringWriter();
+    rda.WriteTo(writer);
+    assertEquals(rda.ToString(), writer.toString());
+
+    StringBuilder formatted = new StringBuilder();
+    rda.GetRda(3).WriteTo(formatted, Rda.FORMATTING_VERSION.V2);
+    assertEquals(rda.GetRda(3).ToStringFormatted(), formatted.toString());
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    rda.WriteTo(output, StandardCharsets.UTF_8);
+    String written = new String(output.toByteArray(), StandardCharsets.UTF_8);
+    assertEquals(rda.ToString(), written);
+    assertEquals(
+      "\u00e9t\u00e9 | \u6771\u4eac",
+      Rda.Parse(written).GetValue(new int[] { 3, 1 })
+    );
+  }
+
+  @Test
+  public void StreamingReaderTest() throws Exception {
+    //the trailing empty sections after "d;" and "f;" are dropped, as in Rda.Parse()
+    String rdaString = "|;\\|a;b\\;c|d;|e;f;";
+    StringBuilder events = new StringBuilder();
+    try (
+      RdaReader reader = new RdaReader(
+        new ByteArrayInputStream(rdaString.getBytes(StandardCharsets.UTF_8)),
+        StandardCharsets.UTF_8
+      )
+    ) {
+      while (reader.Next() != RdaReader.EventType.END_DOCUMENT) {
+        StringBuilder path = new StringBuilder();
+        for (int index : reader.GetPath()) {
+          path.append('.').append(index);
+        }
+        if (reader.GetEventType() == RdaReader.EventType.VALUE) {
+          events.append(path).append('=').append(reader.GetValue()).append(' ');
+        } else {
+          events.append(reader.GetEventType().name().charAt(0)).append(path).append(' ');
+        }
+      }
+      assertFalse(reader.HasNext());
+      assertEquals(2, reader.GetEncoding().Delimiters.length);
+    }
+    assertEquals(
+      "S S.0 .0.0=a .0.1=b;c E.0 S.1 .1.0=d E.1 S.2 .2.0=e .2.1=f E.2 E ",
+      events.toString()
+    );
+
+    //the leaves are the same as the parsed Rda's
+    Rda rda = Rda.Parse(rdaString);
+    assertEquals("b;c", rda.GetValue(new int[] { 0, 1 }));
+    assertEquals(1, rda.GetRda(1).Length());
+    assertEquals(2, rda.GetRda(2).Length());
+
+    //without a header section, the whole string is the (root's) value
+    RdaReader reader = new RdaReader(new StringReader("abc|def"));
+    assertEquals(RdaReader.EventType.VALUE, reader.Next());
+    assertEquals("abc|def", reader.GetValue());
+    assertEquals(0, reader.GetDepth());
+    assertEquals(RdaReader.EventType.END_DOCUMENT, reader.Next());
+  }
 }